@@ -15,6 +15,8 @@ public class MessageConstant {
     public static final String SHOPPING_CART_IS_NULL = "购物车数据为空，不能下单";
     public static final String ADDRESS_BOOK_IS_NULL = "用户地址为空，不能下单";
     public static final String LOGIN_FAILED = "登录失败";
+    public static final String LOGIN_BUSY = "登录人数过多，请稍后再试";
+    public static final String TOO_MANY_REQUESTS = "操作过于频繁，请稍后再试";
     public static final String UPLOAD_FAILED = "文件上传失败";
     public static final String SETMEAL_ENABLE_FAILED = "套餐内包含未启售菜品，无法启售";
     public static final String PASSWORD_EDIT_FAILED = "密码修改失败";
@@ -24,6 +26,9 @@ public class MessageConstant {
     public static final String ORDER_STATUS_ERROR = "订单状态错误";
     public static final String ORDER_NOT_FOUND = "订单不存在";
     public static final String ALREADY_EXISTS = "已存在";
+    public static final String CURSOR_INVALID = "分页游标无效";
+    public static final String SHOP_CLOSED = "店铺已打烊，暂不接单";
+    public static final String SHOP_STATUS_UNKNOWN = "暂时无法获取店铺营业状态，请稍后再试";
 
 
 }
@@ -0,0 +1,12 @@
+package com.sky.exception;
+
+/**
+ * 请求过于频繁
+ */
+public class RateLimitExceededException extends BaseException {
+
+    public RateLimitExceededException(String msg) {
+        super(msg);
+    }
+
+}
@@ -0,0 +1,12 @@
+package com.sky.exception;
+
+/**
+ * 无法读取店铺营业状态
+ */
+public class ShopStatusUnknownException extends BaseException {
+
+    public ShopStatusUnknownException(String msg) {
+        super(msg);
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "sky.http-client")
+@Data
+public class HttpClientProperties {
+
+    /**
+     * 连接池的最大连接数
+     */
+    private int maxTotal = 200;
+
+    /**
+     * 每个目标主机的最大连接数
+     */
+    private int maxPerRoute = 50;
+
+    /**
+     * 建立连接的超时时间
+     */
+    private Duration connectTimeout = Duration.ofSeconds(2);
+
+    /**
+     * 读取响应的超时时间
+     */
+    private Duration socketTimeout = Duration.ofSeconds(5);
+
+    /**
+     * 从连接池获取连接的超时时间
+     */
+    private Duration connectionRequestTimeout = Duration.ofSeconds(1);
+
+    /**
+     * 空闲连接超过该时间后被关闭
+     */
+    private Duration idleTimeout = Duration.ofSeconds(30);
+
+    /**
+     * 异步请求的线程数
+     */
+    private int asyncThreads = 16;
+
+    /**
+     * 异步请求的等待队列长度，队列满时拒绝新的请求
+     */
+    private int asyncQueueCapacity = 256;
+
+}
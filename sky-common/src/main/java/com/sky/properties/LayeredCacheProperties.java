@@ -0,0 +1,44 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "sky.cache")
+@Data
+public class LayeredCacheProperties {
+
+    /**
+     * 本地一级缓存每个缓存名称最多保存的条目数
+     */
+    private long localMaximumSize = 1000;
+
+    /**
+     * 本地一级缓存的过期时间，兜底跨节点失效消息丢失的情况
+     */
+    private Duration localTtl = Duration.ofMinutes(5);
+
+    /**
+     * Redis二级缓存的过期时间
+     */
+    private Duration redisTtl = Duration.ofHours(24);
+
+    /**
+     * 跨节点缓存失效消息的频道
+     */
+    private String invalidationChannel = "sky:cache:invalidation";
+
+    /**
+     * 缓存数据写入后超过该时间视为过期，由第一个读到的请求重新加载，其他请求继续返回过期数据
+     */
+    private Duration refreshAfter = Duration.ofMinutes(10);
+
+    /**
+     * 过期时间的随机浮动比例，避免同一时间写入的缓存同时过期
+     */
+    private double ttlJitter = 0.2;
+
+}
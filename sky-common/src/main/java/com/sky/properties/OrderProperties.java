@@ -0,0 +1,34 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "sky.order")
+@Data
+public class OrderProperties {
+
+    /**
+     * 待付款订单的支付超时时间，超时后自动取消
+     */
+    private Duration payTimeout = Duration.ofMinutes(15);
+
+    /**
+     * 支付超时时间轮的刻度，即超时取消的最大延迟
+     */
+    private Duration timeoutTick = Duration.ofSeconds(1);
+
+    /**
+     * 批量更新订单状态时每批的订单数量
+     */
+    private int batchSize = 500;
+
+    /**
+     * 定时任务批量更新时两批之间的停顿
+     */
+    private Duration batchPause = Duration.ofMillis(100);
+
+}
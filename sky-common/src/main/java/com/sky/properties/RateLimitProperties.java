@@ -0,0 +1,47 @@
+package com.sky.properties;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "sky.rate-limit")
+@Data
+public class RateLimitProperties {
+
+    /**
+     * 是否同时在Redis中限流，开启后多个节点共享同一个限额
+     */
+    private boolean redisEnabled = false;
+
+    /**
+     * 每个用户的催单频率
+     */
+    private Limit reminderUser = new Limit(Duration.ofSeconds(5), 3);
+
+    /**
+     * 每个用户对每个订单的催单频率
+     */
+    private Limit reminderOrder = new Limit(Duration.ofSeconds(30), 1);
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limit {
+
+        /**
+         * 平均每隔多长时间允许一次请求
+         */
+        private Duration interval;
+
+        /**
+         * 允许连续请求的次数
+         */
+        private int burst;
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.sky.properties;
+
+import com.sky.utils.SnowflakeIdGenerator;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.snowflake")
+@Data
+public class SnowflakeProperties {
+
+    /**
+     * 工作节点id，取值0~1023，多节点部署时每个节点必须不同；不配置时根据主机名和进程号推导
+     */
+    private Long workerId;
+
+    /**
+     * 起始纪元（毫秒），上线后不可修改
+     */
+    private long epoch = SnowflakeIdGenerator.DEFAULT_EPOCH;
+
+}
@@ -5,6 +5,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+
 @Component
 @ConfigurationProperties(prefix = "sky.wechat")
 @Data
@@ -19,5 +21,10 @@ public class WeChatProperties {
     private String weChatPayCertFilePath; //平台证书
     private String notifyUrl; //支付成功的回调地址
     private String refundNotifyUrl; //退款成功的回调地址
+    private String payBaseUrl = "https://api.mch.weixin.qq.com"; //微信支付接口地址，测试时可指向本地模拟服务
+    private int loginMaxConcurrency = 64; //同时调用微信登录接口的最大请求数，超出时直接拒绝
+    private int loginFailureThreshold = 5; //微信登录接口连续失败多少次后熔断
+    private Duration loginOpenDuration = Duration.ofSeconds(30); //熔断后多久放行一次试探请求
+    private long openidCacheSize = 100000; //openid到用户id缓存的最大条目数
 
 }
@@ -0,0 +1,74 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "sky.websocket")
+@Data
+public class WebSocketProperties {
+
+    /**
+     * 每个会话待发送消息队列的长度，队列满时丢弃新消息
+     */
+    private int sessionQueueCapacity = 256;
+
+    /**
+     * 会话连续丢弃多少条消息后视为慢消费者并断开连接
+     */
+    private int maxConsecutiveDrops = 64;
+
+    /**
+     * 发送消息的线程数
+     */
+    private int sendThreads = 4;
+
+    /**
+     * 等待分发的广播消息队列长度
+     */
+    private int dispatchQueueCapacity = 1024;
+
+    /**
+     * 每个会话最多订阅的主题数
+     */
+    private int maxTopicsPerSession = 16;
+
+    /**
+     * 每个节点的最大连接数，超出时以TRY_AGAIN_LATER关闭新连接
+     */
+    private int maxConnections = 10000;
+
+    /**
+     * 超过该时间没有收到pong或消息的会话被断开
+     */
+    private Duration idleTimeout = Duration.ofSeconds(90);
+
+    /**
+     * 跨节点WebSocket消息的频道
+     */
+    private String busChannel = "sky:websocket:bus";
+
+    /**
+     * 跨节点消息的批次窗口，窗口内发布的消息合并成一条Redis消息
+     */
+    private Duration busBatchWindow = Duration.ofMillis(20);
+
+    /**
+     * 来单提醒和催单通知的合并窗口，窗口内同一主题的通知去重后发送，订阅合并主题的客户端收到一帧
+     */
+    private Duration notificationWindow = Duration.ofMillis(200);
+
+    /**
+     * 连接票据的有效期，票据只能使用一次
+     */
+    private Duration ticketTtl = Duration.ofSeconds(30);
+
+    /**
+     * 是否允许未携带票据的旧版管理端页面连接，只能订阅管理端主题；管理端页面升级后关闭
+     */
+    private boolean allowAnonymousAdmin = true;
+
+}
@@ -15,8 +15,15 @@ import java.util.List;
 @NoArgsConstructor
 public class PageResult implements Serializable {
 
-    private long total; //总记录数
+    private long total; //总记录数，游标分页且未要求统计时为-1
 
     private List records; //当前页数据集合
 
+    private String nextCursor; //游标分页时下一页的游标，为null表示已到最后一页
+
+    public PageResult(long total, List records) {
+        this.total = total;
+        this.records = records;
+    }
+
 }
@@ -1,6 +1,8 @@
 package com.sky.utils;
 
 import com.alibaba.fastjson.JSONObject;
+import com.sky.properties.HttpClientProperties;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
@@ -11,66 +13,175 @@ import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.util.EntityUtils;
 
 import java.io.IOException;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Http工具类
+ * 所有请求共用一个带连接池的客户端，复用长连接，避免每次请求都重新建立TCP和TLS连接。
+ * 异步请求在有界线程池中执行，不占用调用方线程。
  */
+@Slf4j
 public class HttpClientUtil {
 
-    static final  int TIMEOUT_MSEC = 5 * 1000;
+    private static volatile CloseableHttpClient httpClient;
+    private static volatile RequestConfig requestConfig;
+    private static volatile ThreadPoolExecutor asyncExecutor;
+    //上一次配置前使用的客户端，其他线程可能仍在使用，下次重新配置或关闭时再关闭
+    private static CloseableHttpClient retiredClient;
+
+    static {
+        configure(new HttpClientProperties());
+    }
+
+    /**
+     * 按配置重新创建客户端和异步线程池
+     * 旧线程池执行完已提交的任务后关闭，旧客户端在下次重新配置或关闭时关闭
+     * @param properties
+     */
+    public static synchronized void configure(HttpClientProperties properties) {
+        CloseableHttpClient oldClient = httpClient;
+        ThreadPoolExecutor oldExecutor = asyncExecutor;
+
+        requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) properties.getConnectTimeout().toMillis())
+                .setConnectionRequestTimeout((int) properties.getConnectionRequestTimeout().toMillis())
+                .setSocketTimeout((int) properties.getSocketTimeout().toMillis()).build();
+        httpClient = HttpClients.custom()
+                .setConnectionManager(createConnectionManager(properties))
+                .setDefaultRequestConfig(requestConfig)
+                //后台线程定期关闭过期和空闲的连接
+                .evictExpiredConnections()
+                .evictIdleConnections(properties.getIdleTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        int threads = properties.getAsyncThreads();
+        asyncExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(properties.getAsyncQueueCapacity()),
+                r -> {
+                    Thread thread = new Thread(r, "http-client-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        asyncExecutor.allowCoreThreadTimeOut(true);
+
+        if (oldExecutor != null) {
+            oldExecutor.shutdown();
+        }
+        close(retiredClient);
+        retiredClient = oldClient;
+    }
+
+    /**
+     * 按配置创建连接池
+     * @param properties
+     * @return
+     */
+    public static PoolingHttpClientConnectionManager createConnectionManager(HttpClientProperties properties) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(properties.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(properties.getMaxPerRoute());
+        //连接空闲一段时间后再次使用前先检查是否可用，避免使用已被服务端关闭的连接
+        connectionManager.setValidateAfterInactivity(2000);
+        return connectionManager;
+    }
+
+    /**
+     * 关闭客户端和异步线程池
+     */
+    public static synchronized void shutdown() {
+        asyncExecutor.shutdown();
+        close(retiredClient);
+        retiredClient = null;
+        close(httpClient);
+    }
 
     /**
      * 发送GET方式请求
      * @param url
      * @param paramMap
      * @return
+     * @throws IOException 请求失败或响应状态不是200
      */
-    public static String doGet(String url,Map<String,String> paramMap){
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
-
-        String result = "";
-        CloseableHttpResponse response = null;
-
-        try{
+    public static String doGet(String url,Map<String,String> paramMap) throws IOException {
+        URI uri;
+        try {
             URIBuilder builder = new URIBuilder(url);
             if(paramMap != null){
                 for (String key : paramMap.keySet()) {
                     builder.addParameter(key,paramMap.get(key));
                 }
             }
-            URI uri = builder.build();
-
-            //创建GET请求
-            HttpGet httpGet = new HttpGet(uri);
+            uri = builder.build();
+        } catch (URISyntaxException e) {
+            throw new IOException("请求地址格式错误：" + url, e);
+        }
 
-            //发送请求
-            response = httpClient.execute(httpGet);
+        //创建GET请求
+        HttpGet httpGet = new HttpGet(uri);
 
+        //发送请求，关闭响应时连接归还连接池
+        try (CloseableHttpResponse response = httpClient.execute(httpGet)) {
             //判断响应状态
-            if(response.getStatusLine().getStatusCode() == 200){
-                result = EntityUtils.toString(response.getEntity(),"UTF-8");
-            }
-        }catch (Exception e){
-            e.printStackTrace();
-        }finally {
-            try {
-                response.close();
-                httpClient.close();
-            } catch (IOException e) {
-                e.printStackTrace();
+            int statusCode = response.getStatusLine().getStatusCode();
+            if(statusCode != 200){
+                EntityUtils.consume(response.getEntity());
+                throw new IOException("GET请求响应状态：" + statusCode);
             }
+            return EntityUtils.toString(response.getEntity(),"UTF-8");
+        } catch (IOException e) {
+            //参数中可能包含密钥，只记录请求地址
+            log.warn("GET请求失败：{}，{}", url, e.getMessage());
+            throw e;
         }
+    }
+
+    /**
+     * 异步发送GET方式请求
+     * @param url
+     * @param paramMap
+     * @return
+     */
+    public static CompletableFuture<String> doGetAsync(String url, Map<String, String> paramMap) {
+        return supplyAsync(() -> doGet(url, paramMap));
+    }
 
-        return result;
+    /**
+     * 在http异步线程池中执行请求，线程池已满时返回失败的future
+     * @param request
+     * @return
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Callable<T> request) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            asyncExecutor.execute(() -> {
+                try {
+                    future.complete(request.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
     }
 
     /**
@@ -81,43 +192,26 @@ public class HttpClientUtil {
      * @throws IOException
      */
     public static String doPost(String url, Map<String, String> paramMap) throws IOException {
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
-        CloseableHttpResponse response = null;
-        String resultString = "";
+        // 创建Http Post请求
+        HttpPost httpPost = new HttpPost(url);
 
-        try {
-            // 创建Http Post请求
-            HttpPost httpPost = new HttpPost(url);
-
-            // 创建参数列表
-            if (paramMap != null) {
-                List<NameValuePair> paramList = new ArrayList();
-                for (Map.Entry<String, String> param : paramMap.entrySet()) {
-                    paramList.add(new BasicNameValuePair(param.getKey(), param.getValue()));
-                }
-                // 模拟表单
-                UrlEncodedFormEntity entity = new UrlEncodedFormEntity(paramList);
-                httpPost.setEntity(entity);
+        // 创建参数列表
+        if (paramMap != null) {
+            List<NameValuePair> paramList = new ArrayList<>();
+            for (Map.Entry<String, String> param : paramMap.entrySet()) {
+                paramList.add(new BasicNameValuePair(param.getKey(), param.getValue()));
             }
+            // 模拟表单
+            UrlEncodedFormEntity entity = new UrlEncodedFormEntity(paramList);
+            httpPost.setEntity(entity);
+        }
 
-            httpPost.setConfig(builderRequestConfig());
-
-            // 执行http请求
-            response = httpClient.execute(httpPost);
+        httpPost.setConfig(requestConfig);
 
-            resultString = EntityUtils.toString(response.getEntity(), "UTF-8");
-        } catch (Exception e) {
-            throw e;
-        } finally {
-            try {
-                response.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+        // 执行http请求
+        try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+            return EntityUtils.toString(response.getEntity(), "UTF-8");
         }
-
-        return resultString;
     }
 
     /**
@@ -128,52 +222,40 @@ public class HttpClientUtil {
      * @throws IOException
      */
     public static String doPost4Json(String url, Map<String, String> paramMap) throws IOException {
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
-        CloseableHttpResponse response = null;
-        String resultString = "";
+        // 创建Http Post请求
+        HttpPost httpPost = new HttpPost(url);
 
-        try {
-            // 创建Http Post请求
-            HttpPost httpPost = new HttpPost(url);
-
-            if (paramMap != null) {
-                //构造json格式数据
-                JSONObject jsonObject = new JSONObject();
-                for (Map.Entry<String, String> param : paramMap.entrySet()) {
-                    jsonObject.put(param.getKey(),param.getValue());
-                }
-                StringEntity entity = new StringEntity(jsonObject.toString(),"utf-8");
-                //设置请求编码
-                entity.setContentEncoding("utf-8");
-                //设置数据类型
-                entity.setContentType("application/json");
-                httpPost.setEntity(entity);
+        if (paramMap != null) {
+            //构造json格式数据
+            JSONObject jsonObject = new JSONObject();
+            for (Map.Entry<String, String> param : paramMap.entrySet()) {
+                jsonObject.put(param.getKey(),param.getValue());
             }
+            StringEntity entity = new StringEntity(jsonObject.toString(),"utf-8");
+            //设置请求编码
+            entity.setContentEncoding("utf-8");
+            //设置数据类型
+            entity.setContentType("application/json");
+            httpPost.setEntity(entity);
+        }
 
-            httpPost.setConfig(builderRequestConfig());
-
-            // 执行http请求
-            response = httpClient.execute(httpPost);
+        httpPost.setConfig(requestConfig);
 
-            resultString = EntityUtils.toString(response.getEntity(), "UTF-8");
-        } catch (Exception e) {
-            throw e;
-        } finally {
-            try {
-                response.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+        // 执行http请求
+        try (CloseableHttpResponse response = httpClient.execute(httpPost)) {
+            return EntityUtils.toString(response.getEntity(), "UTF-8");
         }
-
-        return resultString;
     }
-    private static RequestConfig builderRequestConfig() {
-        return RequestConfig.custom()
-                .setConnectTimeout(TIMEOUT_MSEC)
-                .setConnectionRequestTimeout(TIMEOUT_MSEC)
-                .setSocketTimeout(TIMEOUT_MSEC).build();
+
+    private static void close(CloseableHttpClient client) {
+        if (client == null) {
+            return;
+        }
+        try {
+            client.close();
+        } catch (IOException e) {
+            log.error("关闭http客户端失败", e);
+        }
     }
 
 }
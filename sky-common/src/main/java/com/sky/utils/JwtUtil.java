@@ -2,6 +2,7 @@ package com.sky.utils;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import java.nio.charset.StandardCharsets;
@@ -23,7 +24,8 @@ public class JwtUtil {
         SignatureAlgorithm signatureAlgorithm = SignatureAlgorithm.HS256;
 
         // 生成JWT的时间
-        long expMillis = System.currentTimeMillis() + ttlMillis;
+        long nowMillis = System.currentTimeMillis();
+        long expMillis = nowMillis + ttlMillis;
         Date exp = new Date(expMillis);
 
         // 设置jwt的body
@@ -32,6 +34,8 @@ public class JwtUtil {
                 .setClaims(claims)
                 // 设置签名使用的签名算法和签名使用的秘钥
                 .signWith(signatureAlgorithm, secretKey.getBytes(StandardCharsets.UTF_8))
+                // 设置签发时间，用于按时间吊销某个员工的全部令牌
+                .setIssuedAt(new Date(nowMillis))
                 // 设置过期时间
                 .setExpiration(exp);
 
@@ -46,13 +50,29 @@ public class JwtUtil {
      * @return
      */
     public static Claims parseJWT(String secretKey, String token) {
-        // 得到DefaultJwtParser
-        Claims claims = Jwts.parser()
-                // 设置签名的秘钥
-                .setSigningKey(secretKey.getBytes(StandardCharsets.UTF_8))
-                // 设置需要解析的jwt
-                .parseClaimsJws(token).getBody();
-        return claims;
+        return parseJWT(createParser(secretKey), token);
+    }
+
+    /**
+     * 创建设置好签名秘钥的解析器，解析器可以复用，避免每次解析都重新创建
+     *
+     * @param secretKey jwt秘钥
+     * @return
+     */
+    public static JwtParser createParser(String secretKey) {
+        // 得到DefaultJwtParser，设置签名的秘钥
+        return Jwts.parser().setSigningKey(secretKey.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 使用预先创建的解析器解析Token
+     *
+     * @param parser 由createParser创建的解析器
+     * @param token  加密后的token
+     * @return
+     */
+    public static Claims parseJWT(JwtParser parser, String token) {
+        return parser.parseClaimsJws(token).getBody();
     }
 
 }
@@ -0,0 +1,52 @@
+package com.sky.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 游标分页（keyset）的游标，记录上一页最后一条记录的 (时间, id)，
+ * 对客户端以不透明的Base64字符串形式传递
+ */
+@Data
+@AllArgsConstructor
+public class KeysetCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private LocalDateTime time;
+
+    private Long id;
+
+    /**
+     * 编码为不透明的游标字符串
+     * @return
+     */
+    public String encode() {
+        String raw = time + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标字符串，空字符串表示从第一页开始，返回null
+     *
+     * @param cursor
+     * @return
+     * @throws IllegalArgumentException 游标格式不正确
+     */
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int index = raw.lastIndexOf(SEPARATOR);
+            return new KeysetCursor(LocalDateTime.parse(raw.substring(0, index)), Long.valueOf(raw.substring(index + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("游标格式不正确：" + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.sky.utils;
+
+/**
+ * 订单号生成器，可替换为其他实现（如号段、数据库序列等）
+ */
+public interface OrderNumberGenerator {
+
+    /**
+     * 生成下一个订单号
+     * @return
+     */
+    String nextNumber();
+}
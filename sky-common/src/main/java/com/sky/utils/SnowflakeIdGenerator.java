@@ -0,0 +1,70 @@
+package com.sky.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 雪花算法id生成器
+ * 64位结构：1位符号位(0) + 41位毫秒时间戳(相对起始纪元) + 10位工作节点id + 12位毫秒内序列号
+ *
+ * 无锁实现：把"时间戳+序列号"打包在一个AtomicLong中，通过CAS推进；
+ * 同一毫秒内序列号用尽、或系统时钟回拨时，不等待也不报错，而是沿用逻辑时间继续递增（借用未来的毫秒），
+ * 保证单节点内id严格单调递增、永不重复
+ */
+public class SnowflakeIdGenerator implements OrderNumberGenerator {
+
+    //默认起始纪元：2024-01-01 00:00:00 UTC
+    public static final long DEFAULT_EPOCH = 1704067200000L;
+
+    private static final int WORKER_ID_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+
+    public static final long MAX_WORKER_ID = (1L << WORKER_ID_BITS) - 1;
+    private static final int TIMESTAMP_SHIFT = WORKER_ID_BITS + SEQUENCE_BITS;
+
+    private final long workerId;
+    private final long epoch;
+    private final LongSupplier clock;
+
+    //高位为上一次使用的逻辑时间戳，低12位为序列号
+    private final AtomicLong state = new AtomicLong();
+
+    public SnowflakeIdGenerator(long workerId) {
+        this(workerId, DEFAULT_EPOCH, System::currentTimeMillis);
+    }
+
+    public SnowflakeIdGenerator(long workerId, long epoch, LongSupplier clock) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("workerId必须在0~" + MAX_WORKER_ID + "之间：" + workerId);
+        }
+        this.workerId = workerId;
+        this.epoch = epoch;
+        this.clock = clock;
+    }
+
+    /**
+     * 生成下一个id
+     * @return
+     */
+    public long nextId() {
+        for (;;) {
+            long last = state.get();
+            long now = clock.getAsLong() - epoch;
+            //时间前进则序列号归零；同一毫秒或时钟回拨则在上次的基础上+1，序列号溢出时自然进位到下一毫秒
+            long next = now > (last >>> SEQUENCE_BITS) ? now << SEQUENCE_BITS : last + 1;
+            if (state.compareAndSet(last, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+                return (timestamp << TIMESTAMP_SHIFT) | (workerId << SEQUENCE_BITS) | sequence;
+            }
+        }
+    }
+
+    public String nextNumber() {
+        return String.valueOf(nextId());
+    }
+
+    public long getWorkerId() {
+        return workerId;
+    }
+}
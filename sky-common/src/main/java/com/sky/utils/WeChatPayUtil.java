@@ -2,11 +2,15 @@ package com.sky.utils;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
+import com.sky.properties.HttpClientProperties;
 import com.sky.properties.WeChatProperties;
 import com.wechat.pay.contrib.apache.httpclient.WechatPayHttpClientBuilder;
 import com.wechat.pay.contrib.apache.httpclient.util.PemUtil;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.RandomStringUtils;
 import org.apache.http.HttpHeaders;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
@@ -14,12 +18,14 @@ import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.util.EntityUtils;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.security.PrivateKey;
 import java.security.Signature;
@@ -28,97 +34,182 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 微信支付工具类
+ * 商户私钥和平台证书只在文件变化时重新解析，签名客户端带连接池并长期复用，
+ * 请求线程中不再读取文件和解析密钥。
  */
 @Component
-public class WeChatPayUtil {
+@Slf4j
+public class WeChatPayUtil implements DisposableBean {
 
-    //微信支付下单接口地址
-    public static final String JSAPI = "https://api.mch.weixin.qq.com/v3/pay/transactions/jsapi";
+    //微信支付下单接口路径
+    public static final String JSAPI = "/v3/pay/transactions/jsapi";
 
-    //申请退款接口地址
-    public static final String REFUNDS = "https://api.mch.weixin.qq.com/v3/refund/domestic/refunds";
+    //申请退款接口路径
+    public static final String REFUNDS = "/v3/refund/domestic/refunds";
 
     @Autowired
     private WeChatProperties weChatProperties;
+    @Autowired
+    private HttpClientProperties httpClientProperties;
+
+    private volatile PayClient payClient;
+    //上一次重新加载前的客户端，下一次重新加载时关闭，保证进行中的请求能够完成
+    private PayClient retiredClient;
+
+    /**
+     * 商户私钥、平台证书和对应的签名客户端
+     */
+    @AllArgsConstructor
+    private static class PayClient {
+        private final PrivateKey merchantPrivateKey;
+        private final CloseableHttpClient httpClient;
+        private final long privateKeyLastModified;
+        private final long certificateLastModified;
+    }
 
     /**
      * 获取调用微信接口的客户端工具对象
      *
      * @return
      */
-    private CloseableHttpClient getClient() {
-        PrivateKey merchantPrivateKey = null;
+    private PayClient getClient() throws IOException {
+        PayClient client = payClient;
+        if (client == null) {
+            //启动时由定时检查加载，加载失败或尚未加载时在首次使用时加载
+            client = reloadIfChanged();
+        }
+        if (client == null) {
+            throw new IllegalStateException("未配置微信支付商户私钥或平台证书");
+        }
+        return client;
+    }
+
+    /**
+     * 启动时加载商户私钥和平台证书，之后定时检查文件是否变化
+     */
+    @Scheduled(fixedDelayString = "${sky.wechat.key-check-interval:60000}")
+    public void checkKeyFiles() {
         try {
-            //merchantPrivateKey商户API私钥，如何加载商户API私钥请看常见问题
-            merchantPrivateKey = PemUtil.loadPrivateKey(new FileInputStream(new File(weChatProperties.getPrivateKeyFilePath())));
+            reloadIfChanged();
+        } catch (Exception e) {
+            //继续使用已加载的密钥和证书
+            log.error("重新加载微信支付商户私钥和平台证书失败", e);
+        }
+    }
+
+    /**
+     * 文件变化时重新解析商户私钥和平台证书并创建签名客户端
+     *
+     * @return 当前的客户端
+     */
+    private synchronized PayClient reloadIfChanged() throws IOException {
+        String privateKeyFilePath = weChatProperties.getPrivateKeyFilePath();
+        String certFilePath = weChatProperties.getWeChatPayCertFilePath();
+        if (privateKeyFilePath == null || certFilePath == null) {
+            //未配置微信支付
+            return payClient;
+        }
+
+        File privateKeyFile = new File(privateKeyFilePath);
+        File certFile = new File(certFilePath);
+        PayClient current = payClient;
+        if (current != null
+                && current.privateKeyLastModified == privateKeyFile.lastModified()
+                && current.certificateLastModified == certFile.lastModified()) {
+            return current;
+        }
+
+        long privateKeyLastModified = privateKeyFile.lastModified();
+        long certificateLastModified = certFile.lastModified();
+        PrivateKey merchantPrivateKey;
+        X509Certificate x509Certificate;
+        try (FileInputStream keyInput = new FileInputStream(privateKeyFile);
+             FileInputStream certInput = new FileInputStream(certFile)) {
+            //merchantPrivateKey商户API私钥
+            merchantPrivateKey = PemUtil.loadPrivateKey(keyInput);
             //加载平台证书文件
-            X509Certificate x509Certificate = PemUtil.loadCertificate(new FileInputStream(new File(weChatProperties.getWeChatPayCertFilePath())));
-            //wechatPayCertificates微信支付平台证书列表。你也可以使用后面章节提到的“定时更新平台证书功能”，而不需要关心平台证书的来龙去脉
-            List<X509Certificate> wechatPayCertificates = Arrays.asList(x509Certificate);
-
-            WechatPayHttpClientBuilder builder = WechatPayHttpClientBuilder.create()
-                    .withMerchant(weChatProperties.getMchid(), weChatProperties.getMchSerialNo(), merchantPrivateKey)
-                    .withWechatPay(wechatPayCertificates);
-
-            // 通过WechatPayHttpClientBuilder构造的HttpClient，会自动的处理签名和验签
-            CloseableHttpClient httpClient = builder.build();
-            return httpClient;
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-            return null;
+            x509Certificate = PemUtil.loadCertificate(certInput);
+        }
+        //wechatPayCertificates微信支付平台证书列表
+        List<X509Certificate> wechatPayCertificates = Arrays.asList(x509Certificate);
+
+        // 通过WechatPayHttpClientBuilder构造的HttpClient，会自动的处理签名和验签
+        CloseableHttpClient httpClient = WechatPayHttpClientBuilder.create()
+                .withMerchant(weChatProperties.getMchid(), weChatProperties.getMchSerialNo(), merchantPrivateKey)
+                .withWechatPay(wechatPayCertificates)
+                .setConnectionManager(HttpClientUtil.createConnectionManager(httpClientProperties))
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout((int) httpClientProperties.getConnectTimeout().toMillis())
+                        .setConnectionRequestTimeout((int) httpClientProperties.getConnectionRequestTimeout().toMillis())
+                        .setSocketTimeout((int) httpClientProperties.getSocketTimeout().toMillis())
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(httpClientProperties.getIdleTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+
+        close(retiredClient);
+        retiredClient = current;
+        payClient = new PayClient(merchantPrivateKey, httpClient, privateKeyLastModified, certificateLastModified);
+        log.info("加载微信支付商户私钥和平台证书，证书序列号：{}", x509Certificate.getSerialNumber().toString(16));
+        return payClient;
+    }
+
+    @Override
+    public synchronized void destroy() {
+        close(retiredClient);
+        close(payClient);
+    }
+
+    private void close(PayClient client) {
+        if (client == null) {
+            return;
+        }
+        try {
+            client.httpClient.close();
+        } catch (IOException e) {
+            log.error("关闭微信支付客户端失败", e);
         }
     }
 
     /**
      * 发送post方式请求
      *
-     * @param url
+     * @param path
      * @param body
      * @return
      */
-    private String post(String url, String body) throws Exception {
-        CloseableHttpClient httpClient = getClient();
-
-        HttpPost httpPost = new HttpPost(url);
+    private String post(String path, String body) throws Exception {
+        HttpPost httpPost = new HttpPost(weChatProperties.getPayBaseUrl() + path);
         httpPost.addHeader(HttpHeaders.ACCEPT, ContentType.APPLICATION_JSON.toString());
         httpPost.addHeader(HttpHeaders.CONTENT_TYPE, ContentType.APPLICATION_JSON.toString());
         httpPost.addHeader("Wechatpay-Serial", weChatProperties.getMchSerialNo());
         httpPost.setEntity(new StringEntity(body, "UTF-8"));
 
-        CloseableHttpResponse response = httpClient.execute(httpPost);
-        try {
-            String bodyAsString = EntityUtils.toString(response.getEntity());
-            return bodyAsString;
-        } finally {
-            httpClient.close();
-            response.close();
+        //关闭响应时连接归还连接池
+        try (CloseableHttpResponse response = getClient().httpClient.execute(httpPost)) {
+            return EntityUtils.toString(response.getEntity());
         }
     }
 
     /**
      * 发送get方式请求
      *
-     * @param url
+     * @param path
      * @return
      */
-    private String get(String url) throws Exception {
-        CloseableHttpClient httpClient = getClient();
-
-        HttpGet httpGet = new HttpGet(url);
+    private String get(String path) throws Exception {
+        HttpGet httpGet = new HttpGet(weChatProperties.getPayBaseUrl() + path);
         httpGet.addHeader(HttpHeaders.ACCEPT, ContentType.APPLICATION_JSON.toString());
         httpGet.addHeader(HttpHeaders.CONTENT_TYPE, ContentType.APPLICATION_JSON.toString());
         httpGet.addHeader("Wechatpay-Serial", weChatProperties.getMchSerialNo());
 
-        CloseableHttpResponse response = httpClient.execute(httpGet);
-        try {
-            String bodyAsString = EntityUtils.toString(response.getEntity());
-            return bodyAsString;
-        } finally {
-            httpClient.close();
-            response.close();
+        try (CloseableHttpResponse response = getClient().httpClient.execute(httpGet)) {
+            return EntityUtils.toString(response.getEntity());
         }
     }
 
@@ -168,7 +259,7 @@ public class WeChatPayUtil {
         String bodyAsString = jsapi(orderNum, total, description, openid);
         //解析返回结果
         JSONObject jsonObject = JSON.parseObject(bodyAsString);
-        System.out.println(jsonObject);
+        log.info("微信支付下单结果：{}", jsonObject);
 
         String prepayId = jsonObject.getString("prepay_id");
         if (prepayId != null) {
@@ -188,7 +279,7 @@ public class WeChatPayUtil {
             byte[] message = signMessage.getBytes();
 
             Signature signature = Signature.getInstance("SHA256withRSA");
-            signature.initSign(PemUtil.loadPrivateKey(new FileInputStream(new File(weChatProperties.getPrivateKeyFilePath()))));
+            signature.initSign(getClient().merchantPrivateKey);
             signature.update(message);
             String packageSign = Base64.getEncoder().encodeToString(signature.sign());
 
@@ -205,6 +296,19 @@ public class WeChatPayUtil {
         return jsonObject;
     }
 
+    /**
+     * 异步小程序支付，在http异步线程池中调用微信接口
+     *
+     * @param orderNum    商户订单号
+     * @param total       金额，单位 元
+     * @param description 商品描述
+     * @param openid      微信用户的openid
+     * @return
+     */
+    public CompletableFuture<JSONObject> payAsync(String orderNum, BigDecimal total, String description, String openid) {
+        return HttpClientUtil.supplyAsync(() -> pay(orderNum, total, description, openid));
+    }
+
     /**
      * 申请退款
      *
@@ -232,4 +336,17 @@ public class WeChatPayUtil {
         //调用申请退款接口
         return post(REFUNDS, body);
     }
-}
+
+    /**
+     * 异步申请退款，在http异步线程池中调用微信接口
+     *
+     * @param outTradeNo    商户订单号
+     * @param outRefundNo   商户退款单号
+     * @param refund        退款金额
+     * @param total         原订单金额
+     * @return
+     */
+    public CompletableFuture<String> refundAsync(String outTradeNo, String outRefundNo, BigDecimal refund, BigDecimal total) {
+        return HttpClientUtil.supplyAsync(() -> refund(outTradeNo, outRefundNo, refund, total));
+    }
+}
\ No newline at end of file
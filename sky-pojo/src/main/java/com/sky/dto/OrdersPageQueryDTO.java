@@ -27,4 +27,10 @@ public class OrdersPageQueryDTO implements Serializable {
 
     private Long userId;
 
+    //游标分页的游标，不为null时使用游标分页（空字符串表示第一页）
+    private String cursor;
+
+    //游标分页时是否需要统计总记录数
+    private Boolean count;
+
 }
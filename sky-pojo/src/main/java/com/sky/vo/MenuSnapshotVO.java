@@ -0,0 +1,36 @@
+package com.sky.vo;
+
+import com.sky.entity.Category;
+import com.sky.entity.Setmeal;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * C端完整菜单快照，只包含已启用的分类、起售中的菜品和套餐
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MenuSnapshotVO implements Serializable {
+
+    //菜单版本号，任意分类、菜品、套餐修改后递增
+    private Long version;
+
+    //分类
+    private List<Category> categories;
+
+    //菜品及口味
+    private List<DishVO> dishes;
+
+    //套餐
+    private List<Setmeal> setmeals;
+
+    //套餐包含的菜品，按setmealId关联套餐
+    private List<SetmealDishItemVO> setmealDishes;
+}
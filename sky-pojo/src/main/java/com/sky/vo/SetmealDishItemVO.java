@@ -0,0 +1,30 @@
+package com.sky.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SetmealDishItemVO implements Serializable {
+
+    //套餐id
+    private Long setmealId;
+
+    //菜品名称
+    private String name;
+
+    //份数
+    private Integer copies;
+
+    //菜品图片
+    private String image;
+
+    //菜品描述
+    private String description;
+}
@@ -0,0 +1,27 @@
+package com.sky.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 缓存数据及其过期时间，过期后由第一个读到的请求重新加载
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheEnvelope implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    //缓存的数据
+    private Object value;
+    //过期时间（毫秒时间戳）
+    private long refreshAt;
+
+    public boolean isStale(long now) {
+        return now >= refreshAt;
+    }
+}
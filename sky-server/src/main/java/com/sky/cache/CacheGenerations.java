@@ -0,0 +1,165 @@
+package com.sky.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 缓存代数
+ * 缓存key中带有代数，清空缓存只需把代数加一（一次HINCRBY），旧代数的数据不再被访问，
+ * 由后台线程使用SCAN+UNLINK分批删除，未删除的数据也会在过期后自动删除。
+ * 所有代数（包括0）的key都带有代数，与升级前的key格式（缓存名::key）不同：
+ * 升级前使用JDK序列化写入且没有过期时间的数据不会被读取，首次使用缓存时在后台删除。
+ */
+@Slf4j
+public class CacheGenerations implements DisposableBean {
+
+    public static final String GENERATION_KEY = "CACHE_GENERATION";
+
+    private static final int SWEEP_BATCH_SIZE = 500;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+    private final ExecutorService sweepExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "cache-generation-sweep");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CacheGenerations(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    /**
+     * 获取缓存当前的代数，首次使用时从Redis读取
+     *
+     * @param cacheName
+     * @return
+     */
+    public long current(String cacheName) {
+        return generations.computeIfAbsent(cacheName, name -> {
+            Object generation = stringRedisTemplate.opsForHash().get(GENERATION_KEY, name);
+            if (generation == null) {
+                //从未清空过的缓存可能还有升级前写入的数据
+                String pattern = name + "::*";
+                sweepExecutor.execute(() -> sweep(pattern));
+                return 0L;
+            }
+            return Long.parseLong(generation.toString());
+        });
+    }
+
+    /**
+     * Redis中的key前缀
+     *
+     * @param cacheName
+     * @return
+     */
+    public String prefix(String cacheName) {
+        return prefix(cacheName, current(cacheName));
+    }
+
+    /**
+     * 代数加一，相当于清空缓存，旧代数的数据在后台删除
+     *
+     * @param cacheName
+     * @return 新的代数
+     */
+    public long advance(String cacheName) {
+        long oldGeneration = current(cacheName);
+        Long generation = stringRedisTemplate.opsForHash().increment(GENERATION_KEY, cacheName, 1);
+        update(cacheName, generation);
+
+        String pattern = prefix(cacheName, oldGeneration) + "*";
+        sweepExecutor.execute(() -> sweep(pattern));
+        return generation;
+    }
+
+    /**
+     * 更新本地保存的代数，只会增大
+     *
+     * @param cacheName
+     * @param generation
+     */
+    public void update(String cacheName, long generation) {
+        generations.merge(cacheName, generation, Math::max);
+    }
+
+    /**
+     * 兜底丢失的缓存清空消息，定期与Redis中的代数同步
+     */
+    @Scheduled(fixedDelay = 30000)
+    public void sync() {
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(GENERATION_KEY);
+        entries.forEach((name, generation) -> {
+            if (generations.containsKey(name.toString())) {
+                update(name.toString(), Long.parseLong(generation.toString()));
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        sweepExecutor.shutdownNow();
+    }
+
+    /**
+     * 指定代数的key前缀
+     *
+     * @param cacheName
+     * @param generation
+     * @return
+     */
+    public String prefix(String cacheName, long generation) {
+        return cacheName + ":g" + generation + "::";
+    }
+
+    /**
+     * 分批扫描并异步删除旧代数的数据，不会阻塞Redis
+     *
+     * @param pattern
+     */
+    private void sweep(String pattern) {
+        try {
+            long deleted = stringRedisTemplate.execute((RedisCallback<Long>) connection -> {
+                ScanOptions options = ScanOptions.scanOptions().match(pattern).count(SWEEP_BATCH_SIZE).build();
+                List<byte[]> batch = new ArrayList<>(SWEEP_BATCH_SIZE);
+                long count = 0;
+                try (Cursor<byte[]> cursor = connection.scan(options)) {
+                    while (cursor.hasNext()) {
+                        batch.add(cursor.next());
+                        if (batch.size() >= SWEEP_BATCH_SIZE) {
+                            count += unlink(connection, batch);
+                        }
+                    }
+                }
+                return count + unlink(connection, batch);
+            });
+            log.info("删除旧代数的缓存：{}，{}个", pattern, deleted);
+        } catch (Exception e) {
+            //删除失败时旧数据在过期后自动删除
+            log.error("删除旧代数的缓存失败：{}", pattern, e);
+        }
+    }
+
+    private long unlink(RedisConnection connection, List<byte[]> keys) {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        Long count = connection.unlink(keys.toArray(new byte[0][]));
+        keys.clear();
+        return count == null ? 0 : count;
+    }
+}
@@ -0,0 +1,23 @@
+package com.sky.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 跨节点缓存失效消息
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheInvalidationMessage {
+
+    //发布消息的节点
+    private String nodeId;
+    //缓存名称
+    private String cacheName;
+    //失效的缓存key，为null时清空整个缓存
+    private String key;
+    //清空缓存后的代数
+    private Long generation;
+}
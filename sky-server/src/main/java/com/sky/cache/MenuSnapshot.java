@@ -0,0 +1,39 @@
+package com.sky.cache;
+
+import lombok.Getter;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 预先序列化的菜单快照，同一版本的所有请求共享，创建后不可修改
+ */
+@Getter
+public class MenuSnapshot {
+
+    private final long version;
+    //由json内容的SHA-256摘要计算，内容不同ETag一定不同
+    private final String etag;
+    //序列化后的Result json
+    private final byte[] json;
+    //gzip压缩后的json
+    private final byte[] gzip;
+
+    public MenuSnapshot(long version, byte[] json, byte[] gzip) {
+        this.version = version;
+        this.etag = "\"menu-" + digest(json) + "\"";
+        this.json = json;
+        this.gzip = gzip;
+    }
+
+    private static String digest(byte[] json) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(json);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, 16));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.sky.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 防止缓存击穿的缓存装饰器
+ * 1. 同一个key同时只有一个线程执行加载，其他线程等待加载结果（需要@Cacheable(sync = true)）
+ * 2. 数据过期后由第一个发现的请求在自己的线程中重新加载，其他请求继续返回旧数据
+ * 3. 过期时间随机浮动，避免同一时间写入的缓存同时过期
+ * 数据以CacheEnvelope的形式保存在被装饰的缓存中。
+ */
+@Slf4j
+public class SingleFlightCache implements Cache {
+
+    private final Cache delegate;
+    private final long refreshAfterMillis;
+    private final double ttlJitter;
+
+    //正在加载的key
+    private final ConcurrentMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    public SingleFlightCache(Cache delegate, long refreshAfterMillis, double ttlJitter) {
+        this.delegate = delegate;
+        this.refreshAfterMillis = refreshAfterMillis;
+        this.ttlJitter = ttlJitter;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper wrapper = delegate.get(key);
+        return wrapper != null ? new SimpleValueWrapper(unwrap(wrapper.get())) : null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = delegate.get(key);
+        if (wrapper != null) {
+            Object stored = wrapper.get();
+            //升级前写入的数据没有过期时间，按已过期处理
+            if (!(stored instanceof CacheEnvelope) || ((CacheEnvelope) stored).isStale(System.currentTimeMillis())) {
+                return (T) refresh(key, valueLoader, unwrap(stored));
+            }
+            return (T) unwrap(stored);
+        }
+        return (T) load(key, valueLoader);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, wrap(value));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = delegate.putIfAbsent(key, wrap(value));
+        return existing != null ? new SimpleValueWrapper(unwrap(existing.get())) : null;
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        return delegate.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        return delegate.invalidate();
+    }
+
+    /**
+     * 缓存未命中时加载数据，同一个key只有第一个线程执行加载
+     *
+     * @param key
+     * @param valueLoader
+     * @return
+     */
+    private Object load(Object key, Callable<?> valueLoader) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return await(key, valueLoader, existing);
+        }
+
+        try {
+            //等待期间其他节点可能已经写入缓存
+            ValueWrapper wrapper = delegate.get(key);
+            Object value = wrapper != null ? unwrap(wrapper.get()) : loadAndPut(key, valueLoader);
+            future.complete(value);
+            return value;
+        } catch (Throwable ex) {
+            future.completeExceptionally(ex);
+            throw new ValueRetrievalException(key, valueLoader, ex);
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * 数据过期时重新加载，同一个key只有第一个线程在自己的线程中执行加载，
+     * 加载方法可以继续使用请求线程中的上下文（如BaseContext、事务）
+     * 其他线程以及加载失败时返回旧数据
+     *
+     * @param key
+     * @param valueLoader
+     * @param stale 旧数据
+     * @return
+     */
+    private Object refresh(Object key, Callable<?> valueLoader, Object stale) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, future) != null) {
+            return stale;
+        }
+
+        try {
+            Object value = loadAndPut(key, valueLoader);
+            future.complete(value);
+            return value;
+        } catch (Throwable ex) {
+            log.error("刷新过期缓存失败，继续返回旧数据：{}::{}", getName(), key, ex);
+            future.complete(stale);
+            return stale;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private Object loadAndPut(Object key, Callable<?> valueLoader) throws Exception {
+        Object value = valueLoader.call();
+        put(key, value);
+        return value;
+    }
+
+    private Object await(Object key, Callable<?> valueLoader, CompletableFuture<Object> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ValueRetrievalException(key, valueLoader, ex);
+        } catch (ExecutionException ex) {
+            throw new ValueRetrievalException(key, valueLoader, ex.getCause());
+        }
+    }
+
+    private CacheEnvelope wrap(Object value) {
+        double jitter = ttlJitter > 0 ? ThreadLocalRandom.current().nextDouble(-ttlJitter, ttlJitter) : 0;
+        long refreshAt = System.currentTimeMillis() + (long) (refreshAfterMillis * (1 + jitter));
+        return new CacheEnvelope(value, refreshAt);
+    }
+
+    private Object unwrap(Object stored) {
+        return stored instanceof CacheEnvelope ? ((CacheEnvelope) stored).getValue() : stored;
+    }
+}
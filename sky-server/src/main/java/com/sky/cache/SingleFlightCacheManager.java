@@ -0,0 +1,55 @@
+package com.sky.cache;
+
+import com.sky.properties.LayeredCacheProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 为被装饰的CacheManager中的每个缓存加上SingleFlightCache
+ */
+public class SingleFlightCacheManager implements CacheManager {
+
+    private final CacheManager delegate;
+    private final LayeredCacheProperties layeredCacheProperties;
+    private final ConcurrentMap<String, Cache> caches = new ConcurrentHashMap<>();
+
+    public SingleFlightCacheManager(CacheManager delegate, LayeredCacheProperties layeredCacheProperties) {
+        this.delegate = delegate;
+        this.layeredCacheProperties = layeredCacheProperties;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache target = delegate.getCache(name);
+        if (target == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, n -> new SingleFlightCache(target,
+                layeredCacheProperties.getRefreshAfter().toMillis(), layeredCacheProperties.getTtlJitter()));
+    }
+
+    /**
+     * 批量把Redis中的数据读入一级缓存，被装饰的不是二级缓存时不做处理
+     *
+     * @param cacheName
+     * @param keys
+     */
+    public void preload(String cacheName, Collection<?> keys) {
+        if (delegate instanceof TwoLevelCacheManager) {
+            ((TwoLevelCacheManager) delegate).preload(cacheName, keys);
+        }
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+}
@@ -0,0 +1,174 @@
+package com.sky.cache;
+
+import com.sky.redis.RedisBatchOperations;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * 二级缓存：本地Caffeine作为一级缓存，Redis作为二级缓存
+ * 读取时依次查询一级、二级缓存，二级缓存命中后回填一级缓存；
+ * 失效时删除Redis中的数据并通过Redis发布订阅通知其他节点删除各自的一级缓存；
+ * 清空缓存时只把缓存代数加一，一级、二级缓存的key都带有代数，旧代数的数据不会再被读取。
+ * 一级缓存返回的是同一个对象实例，缓存的数据不允许修改。
+ */
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<String, Object> localCache;
+    private final Cache redisCache;
+    private final TwoLevelCacheManager cacheManager;
+    private final CacheGenerations cacheGenerations;
+    private final RedisBatchOperations redisBatchOperations;
+
+    public TwoLevelCache(String name,
+                         com.github.benmanes.caffeine.cache.Cache<String, Object> localCache,
+                         Cache redisCache,
+                         TwoLevelCacheManager cacheManager,
+                         CacheGenerations cacheGenerations,
+                         RedisBatchOperations redisBatchOperations) {
+        super(true);
+        this.name = name;
+        this.localCache = localCache;
+        this.redisCache = redisCache;
+        this.cacheManager = cacheManager;
+        this.cacheGenerations = cacheGenerations;
+        this.redisBatchOperations = redisBatchOperations;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return localCache;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        String localKey = localKey(key);
+        Object value = localCache.getIfPresent(localKey);
+        if (value != null) {
+            return value;
+        }
+
+        ValueWrapper wrapper = redisCache.get(key);
+        if (wrapper == null) {
+            return null;
+        }
+        value = toStoreValue(wrapper.get());
+        localCache.put(localKey, value);
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Throwable ex) {
+            throw new ValueRetrievalException(key, valueLoader, ex);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        redisCache.put(key, value);
+        localCache.put(localKey(key), toStoreValue(value));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = redisCache.putIfAbsent(key, value);
+        Object storeValue = toStoreValue(existing != null ? existing.get() : value);
+        localCache.put(localKey(key), storeValue);
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        redisCache.evict(key);
+        localCache.invalidate(localKey(key));
+        cacheManager.publishInvalidation(name, String.valueOf(key), null);
+    }
+
+    /**
+     * 代数加一即完成清空，不需要扫描Redis中的key
+     */
+    @Override
+    public void clear() {
+        long generation = cacheGenerations.advance(name);
+        cacheManager.publishInvalidation(name, null, generation);
+    }
+
+    /**
+     * 把一级缓存中没有的key一次性从Redis读入一级缓存（MGET），之后逐个读取时不再访问Redis
+     * Redis中也没有的key不处理，读取时照常加载
+     *
+     * @param keys
+     */
+    void preload(Collection<?> keys) {
+        long generation = cacheGenerations.current(name);
+        String prefix = cacheGenerations.prefix(name, generation);
+        //Redis中的key -> 一级缓存的key
+        Map<String, String> missing = new HashMap<>();
+        for (Object key : keys) {
+            String localKey = generation + ":" + key;
+            if (localCache.getIfPresent(localKey) == null) {
+                missing.put(prefix + key, localKey);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        Map<String, Object> values = redisBatchOperations.multiGet(missing.keySet());
+        //读取期间缓存被清空时丢弃读到的旧数据
+        if (cacheGenerations.current(name) != generation) {
+            return;
+        }
+        values.forEach((redisKey, value) -> localCache.put(missing.get(redisKey), value));
+    }
+
+    /**
+     * 收到其他节点的失效消息时只删除本地一级缓存
+     *
+     * @param key
+     */
+    void evictLocal(String key) {
+        localCache.invalidate(localKey(key));
+    }
+
+    /**
+     * 收到其他节点的清空消息时更新代数，本地一级缓存中旧代数的数据不会再被读取
+     *
+     * @param generation
+     */
+    void clearLocal(long generation) {
+        cacheGenerations.update(name, generation);
+    }
+
+    /**
+     * 一级缓存统一使用带代数的字符串key，与Redis中的key保持一致
+     *
+     * @param key
+     * @return
+     */
+    private String localKey(Object key) {
+        return cacheGenerations.current(name) + ":" + key;
+    }
+}
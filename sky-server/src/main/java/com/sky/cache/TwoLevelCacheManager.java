@@ -0,0 +1,124 @@
+package com.sky.cache;
+
+import com.alibaba.fastjson.JSON;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sky.properties.LayeredCacheProperties;
+import com.sky.redis.RedisBatchOperations;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.transaction.AbstractTransactionSupportingCacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 二级缓存管理器
+ * 缓存按名称在首次使用时创建，同时负责发布和接收跨节点的缓存失效消息
+ */
+@Slf4j
+public class TwoLevelCacheManager extends AbstractTransactionSupportingCacheManager implements MessageListener {
+
+    private final CacheManager redisCacheManager;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final LayeredCacheProperties layeredCacheProperties;
+    private final CacheGenerations cacheGenerations;
+    private final RedisBatchOperations redisBatchOperations;
+
+    //当前节点标识，收到自己发布的失效消息时跳过
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(CacheManager redisCacheManager,
+                                StringRedisTemplate stringRedisTemplate,
+                                LayeredCacheProperties layeredCacheProperties,
+                                CacheGenerations cacheGenerations,
+                                RedisBatchOperations redisBatchOperations) {
+        this.redisCacheManager = redisCacheManager;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.layeredCacheProperties = layeredCacheProperties;
+        this.cacheGenerations = cacheGenerations;
+        this.redisBatchOperations = redisBatchOperations;
+    }
+
+    @Override
+    protected Collection<? extends Cache> loadCaches() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    protected Cache getMissingCache(String name) {
+        com.github.benmanes.caffeine.cache.Cache<String, Object> localCache = Caffeine.newBuilder()
+                .maximumSize(layeredCacheProperties.getLocalMaximumSize())
+                .expireAfterWrite(layeredCacheProperties.getLocalTtl())
+                .build();
+        TwoLevelCache cache = new TwoLevelCache(name, localCache, redisCacheManager.getCache(name), this,
+                cacheGenerations, redisBatchOperations);
+        caches.put(name, cache);
+        return cache;
+    }
+
+    /**
+     * 批量把Redis中的数据读入一级缓存
+     *
+     * @param cacheName
+     * @param keys
+     */
+    public void preload(String cacheName, Collection<?> keys) {
+        getCache(cacheName);
+        TwoLevelCache cache = caches.get(cacheName);
+        if (cache == null) {
+            return;
+        }
+        try {
+            cache.preload(keys);
+        } catch (Exception e) {
+            //预读失败不影响请求，之后逐个读取时照常访问Redis
+            log.warn("批量读取缓存失败：{}，{}", cacheName, e.getMessage());
+        }
+    }
+
+    /**
+     * 通知其他节点删除本地一级缓存
+     *
+     * @param cacheName
+     * @param key 为null时清空整个缓存
+     * @param generation 清空缓存后的代数
+     */
+    void publishInvalidation(String cacheName, String key, Long generation) {
+        CacheInvalidationMessage message = new CacheInvalidationMessage(nodeId, cacheName, key, generation);
+        try {
+            stringRedisTemplate.convertAndSend(layeredCacheProperties.getInvalidationChannel(), JSON.toJSONString(message));
+        } catch (Exception e) {
+            //发布失败时其他节点的一级缓存在过期后自然失效
+            log.error("发布缓存失效消息失败：{}", message, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        CacheInvalidationMessage invalidation = JSON.parseObject(
+                new String(message.getBody(), StandardCharsets.UTF_8), CacheInvalidationMessage.class);
+        if (nodeId.equals(invalidation.getNodeId())) {
+            return;
+        }
+
+        //本节点尚未使用过该缓存时没有需要删除的数据
+        TwoLevelCache cache = caches.get(invalidation.getCacheName());
+        if (cache == null) {
+            return;
+        }
+        if (invalidation.getKey() == null) {
+            cache.clearLocal(invalidation.getGeneration());
+        } else {
+            cache.evictLocal(invalidation.getKey());
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.sky.config;
+
+import com.sky.cache.CacheGenerations;
+import com.sky.cache.SingleFlightCacheManager;
+import com.sky.cache.TwoLevelCacheManager;
+import com.sky.properties.LayeredCacheProperties;
+import com.sky.redis.CompactRedisSerializer;
+import com.sky.redis.MeteredRedisCacheWriter;
+import com.sky.redis.RedisBatchOperations;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+
+/**
+ * 配置类，创建二级缓存管理器
+ */
+@Configuration
+@Slf4j
+public class CacheConfiguration {
+
+    @Bean
+    public CacheGenerations cacheGenerations(StringRedisTemplate stringRedisTemplate) {
+        return new CacheGenerations(stringRedisTemplate);
+    }
+
+    @Bean
+    public SingleFlightCacheManager cacheManager(RedisConnectionFactory redisConnectionFactory,
+                                                 StringRedisTemplate stringRedisTemplate,
+                                                 RedisMessageListenerContainer redisMessageListenerContainer,
+                                                 LayeredCacheProperties layeredCacheProperties,
+                                                 CacheGenerations cacheGenerations,
+                                                 CompactRedisSerializer compactRedisSerializer,
+                                                 RedisBatchOperations redisBatchOperations,
+                                                 MeterRegistry meterRegistry) {
+        log.info("开始创建二级缓存管理器...");
+        //二级缓存的key前缀带有缓存代数，每次读写时计算，清空缓存不再扫描Redis
+        RedisCacheWriter redisCacheWriter = new MeteredRedisCacheWriter(
+                RedisCacheWriter.nonLockingRedisCacheWriter(redisConnectionFactory), meterRegistry);
+        RedisCacheManager redisCacheManager = RedisCacheManager
+                .builder(redisCacheWriter)
+                .cacheDefaults(RedisCacheConfiguration.defaultCacheConfig()
+                        .computePrefixWith(cacheGenerations::prefix)
+                        .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(compactRedisSerializer))
+                        .entryTtl(layeredCacheProperties.getRedisTtl()))
+                .build();
+        redisCacheManager.afterPropertiesSet();
+
+        TwoLevelCacheManager twoLevelCacheManager = new TwoLevelCacheManager(
+                redisCacheManager, stringRedisTemplate, layeredCacheProperties, cacheGenerations, redisBatchOperations);
+        //事务内的缓存失效推迟到事务提交之后，避免其他请求在提交前把旧数据重新写入缓存
+        twoLevelCacheManager.setTransactionAware(true);
+        twoLevelCacheManager.afterPropertiesSet();
+        redisMessageListenerContainer.addMessageListener(twoLevelCacheManager,
+                new ChannelTopic(layeredCacheProperties.getInvalidationChannel()));
+
+        //同一个key只加载一次，过期数据由第一个读到的请求刷新
+        return new SingleFlightCacheManager(twoLevelCacheManager, layeredCacheProperties);
+    }
+}
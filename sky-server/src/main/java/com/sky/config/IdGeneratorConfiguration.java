@@ -0,0 +1,33 @@
+package com.sky.config;
+
+import com.sky.properties.SnowflakeProperties;
+import com.sky.utils.OrderNumberGenerator;
+import com.sky.utils.SnowflakeIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * 配置类，用于创建订单号生成器
+ */
+@Configuration
+@Slf4j
+public class IdGeneratorConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public OrderNumberGenerator orderNumberGenerator(SnowflakeProperties snowflakeProperties) {
+        Long workerId = snowflakeProperties.getWorkerId();
+        if (workerId == null) {
+            //未配置时根据"进程号@主机名"推导，多节点部署请显式配置以避免冲突
+            String runtimeName = ManagementFactory.getRuntimeMXBean().getName();
+            workerId = runtimeName.hashCode() & SnowflakeIdGenerator.MAX_WORKER_ID;
+            log.warn("未配置sky.snowflake.worker-id，根据{}推导出workerId：{}", runtimeName, workerId);
+        }
+        log.info("开始创建订单号生成器，workerId：{}", workerId);
+        return new SnowflakeIdGenerator(workerId, snowflakeProperties.getEpoch(), System::currentTimeMillis);
+    }
+}
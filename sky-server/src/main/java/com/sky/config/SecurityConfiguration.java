@@ -0,0 +1,28 @@
+package com.sky.config;
+
+import com.sky.constant.JwtClaimsConstant;
+import com.sky.properties.JwtProperties;
+import com.sky.security.JwtTokenVerifier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 配置类，创建管理端和用户端的jwt令牌校验器
+ */
+@Configuration
+@Slf4j
+public class SecurityConfiguration {
+
+    @Bean
+    public JwtTokenVerifier adminTokenVerifier(JwtProperties jwtProperties) {
+        return new JwtTokenVerifier(jwtProperties.getAdminSecretKey(),
+                JwtClaimsConstant.EMP_ID, jwtProperties.getVerifiedCacheSize());
+    }
+
+    @Bean
+    public JwtTokenVerifier userTokenVerifier(JwtProperties jwtProperties) {
+        return new JwtTokenVerifier(jwtProperties.getUserSecretKey(),
+                JwtClaimsConstant.USER_ID, jwtProperties.getVerifiedCacheSize());
+    }
+}
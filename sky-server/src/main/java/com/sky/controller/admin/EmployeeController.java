@@ -8,6 +8,8 @@ import com.sky.entity.Employee;
 import com.sky.properties.JwtProperties;
 import com.sky.result.PageResult;
 import com.sky.result.Result;
+import com.sky.security.JwtTokenVerifier;
+import com.sky.security.TokenRevocationRegistry;
 import com.sky.service.EmployeeService;
 import com.sky.utils.JwtUtil;
 import com.sky.vo.EmployeeLoginVO;
@@ -17,6 +19,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 import io.swagger.annotations.Api;
 
+import javax.servlet.http.HttpServletRequest;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -33,6 +36,10 @@ public class EmployeeController {
     private EmployeeService employeeService;
     @Autowired
     private JwtProperties jwtProperties;
+    @Autowired
+    private JwtTokenVerifier adminTokenVerifier;
+    @Autowired
+    private TokenRevocationRegistry tokenRevocationRegistry;
 
     /**
      * 登录
@@ -72,7 +79,9 @@ public class EmployeeController {
      */
     @PostMapping("/logout")
     @ApiOperation("员工退出")
-    public Result<String> logout() {
+    public Result<String> logout(HttpServletRequest request) {
+        String token = request.getHeader(jwtProperties.getAdminTokenName());
+        tokenRevocationRegistry.revokeToken(adminTokenVerifier.verify(token));
         return Result.success();
     }
 
@@ -36,7 +36,9 @@ public class OrderController {
     @GetMapping("/conditionSearch")
     @ApiOperation("订单搜索")
     public Result<PageResult> conditionSearch(OrdersPageQueryDTO ordersPageQueryDTO) {
-        PageResult pageResult = orderService.conditionSearch(ordersPageQueryDTO);
+        PageResult pageResult = ordersPageQueryDTO.getCursor() != null
+                ? orderService.cursorSearch(ordersPageQueryDTO)
+                : orderService.conditionSearch(ordersPageQueryDTO);
         return Result.success(pageResult);
     }
 
@@ -1,11 +1,11 @@
 package com.sky.controller.admin;
 
 import com.sky.result.Result;
+import com.sky.service.ShopService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.web.bind.annotation.*;
 
 @RestController("adminShopController")
@@ -14,10 +14,8 @@ import org.springframework.web.bind.annotation.*;
 @Slf4j
 public class ShopController {
 
-    public static final String KEY = "SHOP_STATUS";
-
     @Autowired
-    private RedisTemplate redisTemplate;
+    private ShopService shopService;
 
     /**
      * 设置店铺的营业状态
@@ -28,7 +26,7 @@ public class ShopController {
     @ApiOperation("设置店铺的营业状态")
     public Result setShopStatus(@PathVariable Integer status){
         log.info("设置店铺的营业状态为：{}",status == 1 ? "营业中" : "打烊中");
-        redisTemplate.opsForValue().set(KEY,status);
+        shopService.setStatus(status);
         return Result.success();
     }
 
@@ -39,10 +37,7 @@ public class ShopController {
     @GetMapping("/status")
     @ApiOperation("获取店铺的营业状态")
     public Result<Integer> getShopStatus(){
-        Integer status = (Integer) redisTemplate.opsForValue().get(KEY);
-        if(status == null){
-            status = 0;
-        }
+        Integer status = shopService.getStatus();
         log.info("获取到店铺的营业状态为：{}",status == 1 ? "营业中" : "打烊中");
         return Result.success(status);
     }
@@ -0,0 +1,34 @@
+package com.sky.controller.admin;
+
+import com.sky.context.BaseContext;
+import com.sky.result.Result;
+import com.sky.websocket.WebSocketPrincipal;
+import com.sky.websocket.WebSocketTicketService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController("adminWebSocketTicketController")
+@RequestMapping("/admin/ws")
+@Api(tags = "WebSocket相关接口")
+@Slf4j
+public class WebSocketTicketController {
+
+    @Autowired
+    private WebSocketTicketService webSocketTicketService;
+
+    /**
+     * 换取建立WebSocket连接的一次性票据
+     * @return
+     */
+    @PostMapping("/ticket")
+    @ApiOperation("换取WebSocket连接票据")
+    public Result<String> ticket(){
+        log.info("换取WebSocket连接票据：{}", BaseContext.getCurrentId());
+        return Result.success(webSocketTicketService.issue(WebSocketPrincipal.Role.ADMIN, BaseContext.getCurrentId()));
+    }
+}
@@ -1,5 +1,7 @@
 package com.sky.controller.user;
 
+import com.sky.cache.SingleFlightCacheManager;
+import com.sky.constant.StatusConstant;
 import com.sky.entity.Category;
 import com.sky.result.Result;
 import com.sky.service.CategoryService;
@@ -10,6 +12,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @RestController("userCategoryController")
 @RequestMapping("/user/category")
@@ -18,6 +21,8 @@ public class CategoryController {
 
     @Autowired
     private CategoryService categoryService;
+    @Autowired
+    private SingleFlightCacheManager cacheManager;
 
     /**
      * 查询分类
@@ -28,6 +33,16 @@ public class CategoryController {
     @ApiOperation("查询分类")
     public Result<List<Category>> list(Integer type) {
         List<Category> list = categoryService.list(type);
+        //客户端接下来会按分类查询菜品和套餐，一次MGET把这些分类的缓存读入本地缓存
+        cacheManager.preload("dishCache", categoryIds(list, 1));
+        cacheManager.preload("setmealCache", categoryIds(list, 2));
         return Result.success(list);
     }
-}
\ No newline at end of file
+
+    private List<Long> categoryIds(List<Category> categories, int type) {
+        return categories.stream()
+                .filter(category -> Integer.valueOf(type).equals(category.getType()) && StatusConstant.ENABLE.equals(category.getStatus()))
+                .map(Category::getId)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,59 @@
+package com.sky.controller.user;
+
+import com.sky.cache.MenuSnapshot;
+import com.sky.service.MenuService;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+@RestController("userMenuController")
+@RequestMapping("/user/menu")
+@Api(tags = "C端-菜单接口")
+public class MenuController {
+
+    @Autowired
+    private MenuService menuService;
+
+    /**
+     * 查询完整菜单快照
+     * 直接输出预先序列化、压缩好的数据；客户端携带的If-None-Match与当前快照的ETag一致时返回304
+     *
+     * @param request
+     * @param response
+     * @throws IOException
+     */
+    @GetMapping("/snapshot")
+    @ApiOperation("查询完整菜单快照")
+    public void snapshot(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        MenuSnapshot snapshot = menuService.getSnapshot();
+        response.setHeader(HttpHeaders.ETAG, snapshot.getEtag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && ifNoneMatch.contains(snapshot.getEtag())) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] body = snapshot.getJson();
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            body = snapshot.getGzip();
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+}
@@ -46,12 +46,16 @@ public class OrderController {
      * @param page
      * @param pageSize
      * @param status   订单状态 1待付款 2待接单 3已接单 4派送中 5已完成 6已取消
+     * @param cursor   游标，传入时使用游标分页（空字符串表示第一页），下一页使用返回结果中的nextCursor
+     * @param count    游标分页时是否统计总记录数
      * @return
      */
     @GetMapping("/historyOrders")
     @ApiOperation("历史订单查询")
-    public Result<PageResult> page(int page, int pageSize, Integer status) {
-        PageResult pageResult = orderService.pageQuery4User(page, pageSize, status);
+    public Result<PageResult> page(Integer page, int pageSize, Integer status, String cursor, Boolean count) {
+        PageResult pageResult = cursor != null
+                ? orderService.cursorQuery4User(cursor, pageSize, status, count)
+                : orderService.pageQuery4User(page != null ? page : 1, pageSize, status);
         return Result.success(pageResult);
     }
 
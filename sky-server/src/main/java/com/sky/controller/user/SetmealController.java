@@ -30,7 +30,7 @@ public class SetmealController {
      */
     @GetMapping("/list")
     @ApiOperation("根据分类id查询套餐")
-    @Cacheable(cacheNames = "setmealCache",key = "#categoryId")
+    @Cacheable(cacheNames = "setmealCache", key = "#categoryId", sync = true)
     public Result<List<Setmeal>> getSetmealListById(Long categoryId) {
         Setmeal setmeal = new Setmeal();
         setmeal.setCategoryId(categoryId);
@@ -18,6 +18,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/user/user")
@@ -32,27 +33,28 @@ public class UserController {
 
     /**
      * 微信登录
+     * 异步调用微信接口，等待期间释放servlet线程
      * @param userLoginDTO
      * @return
      */
     @PostMapping("/login")
     @ApiOperation("微信登录")
-    public Result<UserLoginVO> login(@RequestBody UserLoginDTO userLoginDTO){
+    public CompletableFuture<Result<UserLoginVO>> login(@RequestBody UserLoginDTO userLoginDTO){
         log.info("微信用户登录：{}",userLoginDTO.getCode());
 
         //微信登录
-        User user = userService.wxLogin(userLoginDTO);
+        return userService.wxLoginAsync(userLoginDTO).thenApply(user -> {
+            //为微信用户生成jwt令牌
+            Map<String, Object> claims = new HashMap<>();
+            claims.put(JwtClaimsConstant.USER_ID,user.getId());
+            String token = JwtUtil.createJWT(jwtProperties.getUserSecretKey(), jwtProperties.getUserTtl(), claims);
 
-        //为微信用户生成jwt令牌
-        Map<String, Object> claims = new HashMap<>();
-        claims.put(JwtClaimsConstant.USER_ID,user.getId());
-        String token = JwtUtil.createJWT(jwtProperties.getUserSecretKey(), jwtProperties.getUserTtl(), claims);
-
-        UserLoginVO userLoginVO = UserLoginVO.builder()
-                .id(user.getId())
-                .openid(user.getOpenid())
-                .token(token)
-                .build();
-        return Result.success(userLoginVO);
+            UserLoginVO userLoginVO = UserLoginVO.builder()
+                    .id(user.getId())
+                    .openid(user.getOpenid())
+                    .token(token)
+                    .build();
+            return Result.success(userLoginVO);
+        });
     }
 }
\ No newline at end of file
@@ -1,15 +1,16 @@
 package com.sky.interceptor;
 
-import com.sky.constant.JwtClaimsConstant;
 import com.sky.context.BaseContext;
 import com.sky.properties.JwtProperties;
-import com.sky.utils.JwtUtil;
-import io.jsonwebtoken.Claims;
+import com.sky.security.JwtTokenVerifier;
+import com.sky.security.TokenRevocationRegistry;
+import com.sky.security.VerifiedToken;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerInterceptor;
+
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -23,6 +24,11 @@ public class JwtTokenAdminInterceptor implements HandlerInterceptor {
     @Autowired
     private JwtProperties jwtProperties;
 
+    @Autowired
+    private JwtTokenVerifier adminTokenVerifier;
+    @Autowired
+    private TokenRevocationRegistry tokenRevocationRegistry;
+
     /**
      * 校验jwt
      *
@@ -44,10 +50,14 @@ public class JwtTokenAdminInterceptor implements HandlerInterceptor {
 
         //2、校验令牌
         try {
-            log.info("jwt校验:{}", token);
-            Claims claims = JwtUtil.parseJWT(jwtProperties.getAdminSecretKey(), token);
-            Long empId = Long.valueOf(claims.get(JwtClaimsConstant.EMP_ID).toString());
-            log.info("当前员工id：", empId);
+            VerifiedToken verifiedToken = adminTokenVerifier.verify(token);
+            //已退出登录或员工已被禁用
+            if (tokenRevocationRegistry.isRevoked(verifiedToken)) {
+                response.setStatus(401);
+                return false;
+            }
+            Long empId = verifiedToken.getId();
+            log.debug("当前员工id：{}", empId);
             /////将用户id存储到ThreadLocal////////
             BaseContext.setCurrentId(empId);
             ////////////////////////////////////
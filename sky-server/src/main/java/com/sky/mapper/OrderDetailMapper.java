@@ -3,5 +3,13 @@ package com.sky.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.sky.entity.OrderDetail;
 
+import java.util.List;
+
 public interface OrderDetailMapper extends BaseMapper<OrderDetail> {
+
+    /**
+     * 批量插入订单明细数据（单条多值insert）
+     * @param orderDetailList
+     */
+    void insertBatch(List<OrderDetail> orderDetailList);
 }
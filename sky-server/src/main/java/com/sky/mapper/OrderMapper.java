@@ -18,4 +18,11 @@ import java.util.Map;
 public interface OrderMapper extends BaseMapper<Orders> {
 
     List<GoodsSalesDTO> getSalesTop10(LocalDateTime begin, LocalDateTime end);
+
+    /**
+     * 按订单状态分组统计订单数量
+     * @return
+     */
+    @Select("select status, count(id) as count from orders group by status")
+    List<Map<String, Object>> countGroupByStatus();
 }
@@ -5,6 +5,7 @@ import com.sky.entity.Setmeal;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
 import com.sky.vo.DishItemVO;
+import com.sky.vo.SetmealDishItemVO;
 
 import java.util.List;
 
@@ -29,4 +30,11 @@ public interface SetmealMapper extends BaseMapper<Setmeal> {
             "where sd.setmeal_id = #{setmealId}")
     List<DishItemVO> getDishItemBySetmealId(Long setmealId);
 
+    /**
+     * 根据多个套餐id批量查询套餐包含的菜品
+     * @param setmealIds
+     * @return
+     */
+    List<SetmealDishItemVO> getDishItemBySetmealIds(List<Long> setmealIds);
+
 }
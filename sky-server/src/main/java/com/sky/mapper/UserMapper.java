@@ -2,9 +2,27 @@ package com.sky.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
 import com.sky.entity.User;
 
+import java.util.List;
+
 @Mapper
 public interface UserMapper extends BaseMapper<User> {
 
+    /**
+     * 按openid插入用户，openid已存在时不插入，两种情况都会把用户id回填到user中
+     * 依赖user表openid列上的唯一索引（db/user_openid_unique_index.sql）
+     * @param user
+     */
+    void upsertByOpenid(User user);
+
+    /**
+     * 查询user表中只包含openid一列的唯一索引
+     * @return 索引名称
+     */
+    @Select("select index_name from information_schema.statistics " +
+            "where table_schema = database() and table_name = 'user' and non_unique = 0 " +
+            "group by index_name having count(*) = 1 and max(column_name) = 'openid'")
+    List<String> selectOpenidUniqueIndexes();
 }
@@ -0,0 +1,82 @@
+package com.sky.redis;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+
+/**
+ * 迁移升级前写入的Redis数据
+ * 升级前key和value都使用JDK序列化，升级后key使用字符串、value使用Smile格式，旧数据无法直接读取。
+ * 启动时读取旧key，按新格式重新写入后删除旧key；反序列化只允许指定的类型，其他类型一律拒绝。
+ */
+@Component
+@Slf4j
+public class LegacyRedisKeyMigrator {
+
+    private final JdkSerializationRedisSerializer keySerializer = new JdkSerializationRedisSerializer();
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 迁移一个旧key，新key已存在时只删除旧key
+     *
+     * @param key
+     * @param type 旧数据的类型
+     */
+    public <T> void migrate(String key, Class<T> type) {
+        try {
+            byte[] legacyKey = keySerializer.serialize(key);
+            byte[] bytes = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(legacyKey));
+            if (bytes == null) {
+                return;
+            }
+
+            T value = deserialize(bytes, type);
+            Boolean migrated = redisTemplate.opsForValue().setIfAbsent(key, value);
+            redisTemplate.execute((RedisCallback<Long>) connection -> connection.del(legacyKey));
+            log.info("迁移旧Redis数据：{}={}，{}", key, value, Boolean.TRUE.equals(migrated) ? "已写入" : "新key已存在");
+        } catch (Exception e) {
+            log.warn("迁移旧Redis数据失败：{}", key, e);
+        }
+    }
+
+    private <T> T deserialize(byte[] bytes, Class<T> type) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new RestrictedObjectInputStream(new ByteArrayInputStream(bytes), type)) {
+            return type.cast(in.readObject());
+        }
+    }
+
+    /**
+     * 只允许反序列化指定类型及其父类
+     */
+    private static class RestrictedObjectInputStream extends ObjectInputStream {
+
+        private final Class<?> type;
+
+        RestrictedObjectInputStream(InputStream in, Class<?> type) throws IOException {
+            super(in);
+            this.type = type;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                if (c.getName().equals(desc.getName())) {
+                    return super.resolveClass(desc);
+                }
+            }
+            throw new InvalidClassException(desc.getName(), "不允许反序列化该类型");
+        }
+    }
+}
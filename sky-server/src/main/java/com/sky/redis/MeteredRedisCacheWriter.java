@@ -0,0 +1,98 @@
+package com.sky.redis;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.data.redis.cache.CacheStatistics;
+import org.springframework.data.redis.cache.CacheStatisticsCollector;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * 记录每个缓存的Redis访问耗时（sky.cache.redis.latency）和数据大小（sky.cache.redis.payload）
+ */
+public class MeteredRedisCacheWriter implements RedisCacheWriter {
+
+    private final RedisCacheWriter delegate;
+    private final MeterRegistry meterRegistry;
+
+    public MeteredRedisCacheWriter(RedisCacheWriter delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void put(String name, byte[] key, byte[] value, Duration ttl) {
+        recordPayload(name, "put", value);
+        record(name, "put", () -> {
+            delegate.put(name, key, value, ttl);
+            return null;
+        });
+    }
+
+    @Override
+    public byte[] get(String name, byte[] key) {
+        byte[] value = record(name, "get", () -> delegate.get(name, key));
+        recordPayload(name, "get", value);
+        return value;
+    }
+
+    @Override
+    public byte[] putIfAbsent(String name, byte[] key, byte[] value, Duration ttl) {
+        recordPayload(name, "putIfAbsent", value);
+        return record(name, "putIfAbsent", () -> delegate.putIfAbsent(name, key, value, ttl));
+    }
+
+    @Override
+    public void remove(String name, byte[] key) {
+        record(name, "remove", () -> {
+            delegate.remove(name, key);
+            return null;
+        });
+    }
+
+    @Override
+    public void clean(String name, byte[] pattern) {
+        record(name, "clean", () -> {
+            delegate.clean(name, pattern);
+            return null;
+        });
+    }
+
+    @Override
+    public void clearStatistics(String name) {
+        delegate.clearStatistics(name);
+    }
+
+    @Override
+    public RedisCacheWriter withStatisticsCollector(CacheStatisticsCollector cacheStatisticsCollector) {
+        return new MeteredRedisCacheWriter(delegate.withStatisticsCollector(cacheStatisticsCollector), meterRegistry);
+    }
+
+    @Override
+    public CacheStatistics getCacheStatistics(String cacheName) {
+        return delegate.getCacheStatistics(cacheName);
+    }
+
+    private <T> T record(String name, String operation, Supplier<T> supplier) {
+        return Timer.builder("sky.cache.redis.latency")
+                .tag("cache", name)
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .record(supplier);
+    }
+
+    private void recordPayload(String name, String operation, byte[] value) {
+        if (value == null) {
+            return;
+        }
+        DistributionSummary.builder("sky.cache.redis.payload")
+                .baseUnit("bytes")
+                .tag("cache", name)
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .record(value.length);
+    }
+}
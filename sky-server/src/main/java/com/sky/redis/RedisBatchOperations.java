@@ -0,0 +1,58 @@
+package com.sky.redis;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Redis批量读取，一次网络往返完成多个key的读取
+ * key为Redis中的完整key，缓存数据的key需要调用方加上CacheGenerations的前缀
+ */
+@Component
+public class RedisBatchOperations {
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 批量读取（MGET）
+     *
+     * @param keys
+     * @return 存在的key及其值
+     */
+    public Map<String, Object> multiGet(Collection<String> keys) {
+        Map<String, Object> result = new HashMap<>();
+        if (keys.isEmpty()) {
+            return result;
+        }
+
+        List<String> keyList = new ArrayList<>(keys);
+        List<Object> values = timer("multiGet").record(() -> redisTemplate.opsForValue().multiGet(keyList));
+        if (values == null) {
+            return result;
+        }
+        for (int i = 0; i < keyList.size(); i++) {
+            Object value = values.get(i);
+            if (value != null) {
+                result.put(keyList.get(i), value);
+            }
+        }
+        return result;
+    }
+
+    private Timer timer(String operation) {
+        return Timer.builder("sky.redis.batch.latency")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,105 @@
+package com.sky.resilience;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 熔断器
+ * 连续失败达到阈值后打开，打开期间直接拒绝调用；
+ * 打开一段时间后进入半开状态，只放行一次试探调用，成功则关闭，失败则重新打开。
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openedAt;
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * 是否允许本次调用，允许时调用结束后必须调用onSuccess、onFailure或releasePermission
+     *
+     * @return
+     */
+    public boolean tryAcquirePermission() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+            //只有一个线程能从打开切换到半开，作为试探调用
+            return state.compareAndSet(State.OPEN, State.HALF_OPEN);
+        }
+        return false;
+    }
+
+    /**
+     * 调用成功：半开时关闭熔断器，关闭时清零连续失败次数
+     * 打开期间返回的结果来自打开之前放行的调用，不改变状态
+     */
+    public void onSuccess() {
+        State current = state.get();
+        if (current == State.HALF_OPEN) {
+            if (state.compareAndSet(State.HALF_OPEN, State.CLOSED)) {
+                consecutiveFailures.set(0);
+            }
+        } else if (current == State.CLOSED) {
+            consecutiveFailures.set(0);
+        }
+    }
+
+    /**
+     * 调用失败：半开时重新打开，关闭时连续失败达到阈值后打开
+     * 打开期间返回的结果不延长打开时间
+     */
+    public void onFailure() {
+        State current = state.get();
+        if (current == State.HALF_OPEN) {
+            open(State.HALF_OPEN);
+        } else if (current == State.CLOSED && consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            open(State.CLOSED);
+        }
+    }
+
+    /**
+     * 调用没有到达下游（如本地线程池拒绝），不计入成功或失败
+     * 半开时退回打开状态并保留原打开时间，下一次调用可以立即重新试探
+     */
+    public void releasePermission() {
+        state.compareAndSet(State.HALF_OPEN, State.OPEN);
+    }
+
+    /**
+     * 只有一个线程能打开熔断器
+     * 先记录打开时间再切换状态，其他线程看到OPEN时openedAt已经是本次的值；状态已被其他线程改变时不打开
+     */
+    private synchronized void open(State from) {
+        if (state.get() != from) {
+            return;
+        }
+        openedAt = System.currentTimeMillis();
+        if (state.compareAndSet(from, State.OPEN)) {
+            consecutiveFailures.set(0);
+        }
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public String getName() {
+        return name;
+    }
+}
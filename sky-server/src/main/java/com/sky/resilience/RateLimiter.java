@@ -0,0 +1,87 @@
+package com.sky.resilience;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sky.properties.RateLimitProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按key限流的令牌桶
+ * 使用GCRA算法，每个key只保存一个“理论到达时间”，一次CAS完成判断和扣减，不加锁；
+ * 桶保存在分段的Caffeine缓存中，空闲到令牌已经补满时自动删除。
+ * 开启Redis时本地通过后再用Lua脚本在Redis中执行同样的判断，Redis不可用时只按本地限额放行。
+ */
+@Slf4j
+public class RateLimiter {
+
+    private static final String KEY_PREFIX = "RATE_LIMIT:";
+
+    private final String name;
+    private final long intervalNanos;
+    private final long burstNanos;
+    //key -> 理论到达时间（System.nanoTime）
+    private final Cache<String, AtomicLong> buckets;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisScript<Long> redisScript;
+    private final String intervalMillis;
+    private final String burst;
+
+    public RateLimiter(String name, RateLimitProperties.Limit limit,
+                       StringRedisTemplate stringRedisTemplate, RedisScript<Long> redisScript) {
+        this.name = name;
+        this.intervalNanos = limit.getInterval().toNanos();
+        this.burstNanos = intervalNanos * limit.getBurst();
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(burstNanos, TimeUnit.NANOSECONDS)
+                .build();
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisScript = redisScript;
+        this.intervalMillis = String.valueOf(limit.getInterval().toMillis());
+        this.burst = String.valueOf(limit.getBurst());
+    }
+
+    /**
+     * 尝试获取一次请求的许可
+     *
+     * @param key 限流维度，如用户id、订单id
+     * @return 超出限额时返回false
+     */
+    public boolean tryAcquire(Object key) {
+        String bucketKey = key.toString();
+        AtomicLong tat = buckets.get(bucketKey, k -> new AtomicLong(Long.MIN_VALUE));
+        long now = System.nanoTime();
+        while (true) {
+            long current = tat.get();
+            long next = Math.max(current, now) + intervalNanos;
+            if (next - now > burstNanos) {
+                return false;
+            }
+            if (tat.compareAndSet(current, next)) {
+                break;
+            }
+        }
+        return stringRedisTemplate == null || tryAcquireGlobal(bucketKey);
+    }
+
+    private boolean tryAcquireGlobal(String key) {
+        try {
+            Long allowed = stringRedisTemplate.execute(redisScript,
+                    Collections.singletonList(KEY_PREFIX + name + ":" + key), intervalMillis, burst);
+            return allowed == null || allowed == 1L;
+        } catch (Exception e) {
+            log.warn("Redis限流失败，按本地限额放行：{}", e.getMessage());
+            return true;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+}
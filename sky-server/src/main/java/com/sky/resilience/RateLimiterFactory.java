@@ -0,0 +1,35 @@
+package com.sky.resilience;
+
+import com.sky.properties.RateLimitProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+/**
+ * 创建限流器，按配置决定是否同时在Redis中限流
+ */
+@Component
+public class RateLimiterFactory {
+
+    private static final RedisScript<Long> RATE_LIMIT_SCRIPT =
+            RedisScript.of(new ClassPathResource("scripts/rate_limit.lua"), Long.class);
+
+    @Autowired
+    private RateLimitProperties rateLimitProperties;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 创建限流器
+     *
+     * @param name 限流器名称，同时作为Redis key的一部分
+     * @param limit 限额
+     * @return
+     */
+    public RateLimiter create(String name, RateLimitProperties.Limit limit) {
+        return new RateLimiter(name, limit,
+                rateLimitProperties.isRedisEnabled() ? stringRedisTemplate : null, RATE_LIMIT_SCRIPT);
+    }
+}
@@ -0,0 +1,106 @@
+package com.sky.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.sky.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * jwt令牌校验器
+ * 使用预先创建的解析器校验签名，校验通过的令牌按摘要缓存其中的id，
+ * 缓存条目在令牌过期时失效，命中缓存时不再计算签名和解析json。
+ */
+public class JwtTokenVerifier {
+
+    private final JwtParser parser;
+    private final String idClaim;
+    //key为令牌的SHA-256摘要，避免在内存中保存原始令牌
+    private final Cache<String, VerifiedToken> verifiedTokens;
+
+    public JwtTokenVerifier(String secretKey, String idClaim, long maximumSize) {
+        this.parser = JwtUtil.createParser(secretKey);
+        this.idClaim = idClaim;
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        long remaining = value.getExpiresAt() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(remaining, 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * 校验令牌
+     *
+     * @param token
+     * @return 校验通过的令牌信息
+     * @throws io.jsonwebtoken.JwtException 令牌无效或已过期
+     */
+    public VerifiedToken verify(String token) {
+        String digest = digest(token);
+        VerifiedToken verifiedToken = verifiedTokens.getIfPresent(digest);
+        //缓存过期存在延迟，再次检查令牌的过期时间
+        if (verifiedToken != null && verifiedToken.getExpiresAt() > System.currentTimeMillis()) {
+            return verifiedToken;
+        }
+
+        Claims claims = JwtUtil.parseJWT(parser, token);
+        Long id = Long.valueOf(claims.get(idClaim).toString());
+        Date issuedAt = claims.getIssuedAt();
+        Date expiration = claims.getExpiration();
+        verifiedToken = new VerifiedToken(id, digest,
+                issuedAt != null ? issuedAt.getTime() : 0,
+                expiration != null ? expiration.getTime() : Long.MAX_VALUE,
+                fingerprint(digest));
+        verifiedTokens.put(digest, verifiedToken);
+        return verifiedToken;
+    }
+
+    /**
+     * 摘要的前64位
+     *
+     * @param digest
+     * @return
+     */
+    public static long fingerprint(String digest) {
+        return ByteBuffer.wrap(Base64.getUrlDecoder().decode(digest)).getLong();
+    }
+
+    /**
+     * 计算令牌的摘要
+     *
+     * @param token
+     * @return
+     */
+    public static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.sky.security;
+
+import com.sky.properties.JwtProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 令牌吊销
+ * Redis中保存已吊销的令牌（有序集合，按过期时间排序）和每个员工的吊销时间（哈希），
+ * 每个节点在内存中保存一份布隆过滤器和精确集合，通过发布订阅增量更新，并定期与Redis全量同步。
+ * 未吊销的令牌只需要一次哈希表查询和布隆过滤器的位运算。
+ */
+@Component
+@Slf4j
+public class TokenRevocationRegistry implements MessageListener {
+
+    public static final String REVOKED_TOKENS_KEY = "REVOKED_TOKENS";
+    public static final String REVOKED_EMPLOYEES_KEY = "REVOKED_EMPLOYEES";
+    public static final String REVOCATION_CHANNEL = "sky:token:revocation";
+
+    private static final String TOKEN_MESSAGE = "token";
+    private static final String EMPLOYEE_MESSAGE = "employee";
+    private static final int MIN_EXPECTED_INSERTIONS = 10000;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+    @Autowired
+    private JwtProperties jwtProperties;
+
+    private volatile RevocationBloomFilter bloomFilter = new RevocationBloomFilter(MIN_EXPECTED_INSERTIONS);
+    //已吊销令牌的摘要 -> 令牌过期时间
+    private volatile Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    //员工id -> 吊销时间（精确到秒），在此之前签发的令牌全部失效
+    private final Map<Long, Long> revokedEmployees = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(REVOCATION_CHANNEL));
+        try {
+            sync();
+        } catch (Exception e) {
+            log.error("加载已吊销令牌失败", e);
+        }
+    }
+
+    /**
+     * 令牌是否已被吊销
+     *
+     * @param token
+     * @return
+     */
+    public boolean isRevoked(VerifiedToken token) {
+        Long revokedBefore = revokedEmployees.get(token.getId());
+        if (revokedBefore != null && token.getIssuedAt() < revokedBefore) {
+            return true;
+        }
+        if (!bloomFilter.mightContain(token.getFingerprint())) {
+            return false;
+        }
+        return revokedTokens.containsKey(token.getDigest());
+    }
+
+    /**
+     * 吊销单个令牌，用于退出登录
+     *
+     * @param token
+     */
+    public void revokeToken(VerifiedToken token) {
+        stringRedisTemplate.opsForZSet().add(REVOKED_TOKENS_KEY, token.getDigest(), token.getExpiresAt());
+        addToken(token.getDigest(), token.getExpiresAt());
+        publish(TOKEN_MESSAGE, token.getDigest(), token.getExpiresAt());
+    }
+
+    /**
+     * 吊销员工在当前时间之前签发的全部令牌，用于禁用员工账号
+     *
+     * @param empId
+     */
+    public synchronized void revokeEmployee(Long empId) {
+        //令牌的签发时间只精确到秒，吊销时间同样截断到秒，同一秒内之后签发的令牌不会被误判为已吊销
+        long revokedBefore = System.currentTimeMillis() / 1000 * 1000;
+        stringRedisTemplate.opsForHash().put(REVOKED_EMPLOYEES_KEY, empId.toString(), String.valueOf(revokedBefore));
+        addEmployee(empId, revokedBefore);
+        publish(EMPLOYEE_MESSAGE, empId.toString(), revokedBefore);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        //消息格式：类型:令牌摘要或员工id:时间
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(":");
+        long time = Long.parseLong(parts[2]);
+        if (TOKEN_MESSAGE.equals(parts[0])) {
+            addToken(parts[1], time);
+        } else if (EMPLOYEE_MESSAGE.equals(parts[0])) {
+            addEmployee(Long.valueOf(parts[1]), time);
+        }
+    }
+
+    /**
+     * 与Redis全量同步，同时清理已过期的令牌并重建布隆过滤器
+     */
+    @Scheduled(fixedDelay = 60000, initialDelay = 60000)
+    public synchronized void sync() {
+        stringRedisTemplate.opsForZSet().removeRangeByScore(REVOKED_TOKENS_KEY, 0, System.currentTimeMillis());
+        Set<ZSetOperations.TypedTuple<String>> tuples =
+                stringRedisTemplate.opsForZSet().rangeWithScores(REVOKED_TOKENS_KEY, 0, -1);
+
+        int size = tuples == null ? 0 : tuples.size();
+        RevocationBloomFilter filter = new RevocationBloomFilter(Math.max(MIN_EXPECTED_INSERTIONS, size * 2));
+        Map<String, Long> tokens = new ConcurrentHashMap<>(Math.max(16, size * 2));
+        if (tuples != null) {
+            for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                tokens.put(tuple.getValue(), tuple.getScore().longValue());
+                filter.put(JwtTokenVerifier.fingerprint(tuple.getValue()));
+            }
+        }
+        //先替换精确集合再替换过滤器，过滤器命中时精确集合中一定有对应的令牌
+        revokedTokens = tokens;
+        bloomFilter = filter;
+
+        //吊销时间早于令牌有效期的记录不再需要：在此之前签发的令牌都已过期
+        long expiredBefore = System.currentTimeMillis() - jwtProperties.getAdminTtl();
+        Map<Object, Object> employees = stringRedisTemplate.opsForHash().entries(REVOKED_EMPLOYEES_KEY);
+        employees.forEach((empId, revokedBefore) -> {
+            long time = Long.parseLong(revokedBefore.toString());
+            if (time < expiredBefore) {
+                stringRedisTemplate.opsForHash().delete(REVOKED_EMPLOYEES_KEY, empId);
+                removeEmployee(Long.valueOf(empId.toString()), time);
+            } else {
+                addEmployee(Long.valueOf(empId.toString()), time);
+            }
+        });
+        log.debug("同步已吊销令牌：{}个，已吊销员工：{}个", size, revokedEmployees.size());
+    }
+
+    private synchronized void addToken(String digest, long expiresAt) {
+        revokedTokens.put(digest, expiresAt);
+        bloomFilter.put(JwtTokenVerifier.fingerprint(digest));
+    }
+
+    private synchronized void addEmployee(Long empId, long revokedBefore) {
+        revokedEmployees.merge(empId, revokedBefore, Math::max);
+    }
+
+    private synchronized void removeEmployee(Long empId, long revokedBefore) {
+        //期间再次被禁用时保留新的吊销时间
+        revokedEmployees.remove(empId, revokedBefore);
+    }
+
+    private void publish(String type, String subject, long time) {
+        try {
+            stringRedisTemplate.convertAndSend(REVOCATION_CHANNEL, type + ":" + subject + ":" + time);
+        } catch (Exception e) {
+            //其他节点在下次全量同步时获取
+            log.error("发布令牌吊销消息失败：{}:{}", type, subject, e);
+        }
+    }
+}
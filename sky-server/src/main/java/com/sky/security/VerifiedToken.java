@@ -0,0 +1,23 @@
+package com.sky.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 校验通过的令牌
+ */
+@Getter
+@AllArgsConstructor
+public class VerifiedToken {
+
+    //用户id或员工id
+    private final Long id;
+    //令牌的SHA-256摘要
+    private final String digest;
+    //令牌的签发时间（毫秒时间戳），升级前签发的令牌为0
+    private final long issuedAt;
+    //令牌的过期时间（毫秒时间戳）
+    private final long expiresAt;
+    //摘要的前64位，用于布隆过滤器
+    private final long fingerprint;
+}
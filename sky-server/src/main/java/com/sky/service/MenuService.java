@@ -0,0 +1,17 @@
+package com.sky.service;
+
+import com.sky.cache.MenuSnapshot;
+
+public interface MenuService {
+
+    /**
+     * 获取当前版本的菜单快照，版本变更后首次调用时重新构建
+     * @return
+     */
+    MenuSnapshot getSnapshot();
+
+    /**
+     * 分类、菜品、套餐修改后递增菜单版本并通知所有节点，在事务中调用时推迟到事务提交之后执行
+     */
+    void bumpVersion();
+}
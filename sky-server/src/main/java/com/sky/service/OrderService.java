@@ -19,6 +19,16 @@ public interface OrderService extends IService<Orders> {
 
     PageResult pageQuery4User(int page, int pageSize, Integer status);
 
+    /**
+     * 历史订单游标分页查询
+     * @param cursor 上一页返回的游标，空字符串表示第一页
+     * @param pageSize
+     * @param status
+     * @param count 是否统计总记录数
+     * @return
+     */
+    PageResult cursorQuery4User(String cursor, int pageSize, Integer status, Boolean count);
+
     OrderVO details(Long id);
 
     boolean userCancelById(Long id);
@@ -32,6 +42,13 @@ public interface OrderService extends IService<Orders> {
      */
     PageResult conditionSearch(OrdersPageQueryDTO ordersPageQueryDTO);
 
+    /**
+     * 条件搜索订单（游标分页）
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    PageResult cursorSearch(OrdersPageQueryDTO ordersPageQueryDTO);
+
     /**
      * 接单
      * @param ordersConfirmDTO
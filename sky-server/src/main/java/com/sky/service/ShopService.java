@@ -0,0 +1,23 @@
+package com.sky.service;
+
+public interface ShopService {
+
+    /**
+     * 设置店铺的营业状态，并通知所有节点
+     * @param status 1营业中 0打烊中
+     */
+    void setStatus(Integer status);
+
+    /**
+     * 获取店铺的营业状态，读取本地保存的值，不访问Redis
+     * @return 1营业中 0打烊中，从未设置时为打烊中
+     */
+    Integer getStatus();
+
+    /**
+     * 店铺是否营业中
+     * 启动后还没有成功读取过营业状态时（如Redis不可用）先重新读取一次，仍然失败时抛出ShopStatusUnknownException
+     * @return
+     */
+    boolean isOpen();
+}
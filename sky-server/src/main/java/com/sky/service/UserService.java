@@ -3,6 +3,8 @@ package com.sky.service;
 import com.sky.dto.UserLoginDTO;
 import com.sky.entity.User;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface UserService {
 
     /**
@@ -11,4 +13,11 @@ public interface UserService {
      * @return
      */
     User wxLogin(UserLoginDTO userLoginDTO);
+
+    /**
+     * 异步微信登录，调用微信接口时不占用请求线程
+     * @param userLoginDTO
+     * @return
+     */
+    CompletableFuture<User> wxLoginAsync(UserLoginDTO userLoginDTO);
 }
\ No newline at end of file
@@ -19,6 +19,7 @@ import com.sky.mapper.EmployeeMapper;
 import com.sky.mapper.SetmealMapper;
 import com.sky.result.PageResult;
 import com.sky.service.CategoryService;
+import com.sky.service.MenuService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -39,6 +40,8 @@ public class CategoryServiceImpl extends ServiceImpl<CategoryMapper, Category> i
     private DishMapper dishMapper;
     @Autowired
     private SetmealMapper setmealMapper;
+    @Autowired
+    private MenuService menuService;
 
     /**
      * 新增分类
@@ -57,7 +60,9 @@ public class CategoryServiceImpl extends ServiceImpl<CategoryMapper, Category> i
         //category.setCreateUser(BaseContext.getCurrentId());
         //category.setUpdateUser(BaseContext.getCurrentId());
 
-        return categoryMapper.insert(category);
+        int rows = categoryMapper.insert(category);
+        menuService.bumpVersion();
+        return rows;
     }
 
     /**
@@ -98,7 +103,11 @@ public class CategoryServiceImpl extends ServiceImpl<CategoryMapper, Category> i
         }
 
         //删除分类数据
-        return this.removeById(id);
+        boolean success = this.removeById(id);
+        if (success) {
+            menuService.bumpVersion();
+        }
+        return success;
     }
 
     /**
@@ -113,7 +122,9 @@ public class CategoryServiceImpl extends ServiceImpl<CategoryMapper, Category> i
         //category.setUpdateTime(LocalDateTime.now());
         //category.setUpdateUser(BaseContext.getCurrentId());
 
-        return categoryMapper.update(category, new LambdaUpdateWrapper<Category>().eq(Category::getId, category.getId()));
+        int rows = categoryMapper.update(category, new LambdaUpdateWrapper<Category>().eq(Category::getId, category.getId()));
+        menuService.bumpVersion();
+        return rows;
     }
 
     /**
@@ -128,7 +139,9 @@ public class CategoryServiceImpl extends ServiceImpl<CategoryMapper, Category> i
         //设置修改时间、修改人
         //category.setUpdateTime(LocalDateTime.now());
         //category.setUpdateUser(BaseContext.getCurrentId());
-        return categoryMapper.update(category, new LambdaUpdateWrapper<Category>().eq(Category::getId, id));
+        int rows = categoryMapper.update(category, new LambdaUpdateWrapper<Category>().eq(Category::getId, id));
+        menuService.bumpVersion();
+        return rows;
     }
 
     /**
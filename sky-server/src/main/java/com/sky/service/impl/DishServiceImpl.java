@@ -17,28 +17,43 @@ import com.sky.mapper.SetmealDishMapper;
 import com.sky.mapper.SetmealMapper;
 import com.sky.result.PageResult;
 import com.sky.service.DishService;
+import com.sky.service.MenuService;
 import com.sky.vo.DishVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class DishServiceImpl extends ServiceImpl<DishMapper, Dish> implements DishService {
 
+    //C端按分类缓存的菜品列表，key为categoryId
+    private static final String DISH_CACHE = "dishCache";
+
     @Autowired
     private DishMapper dishMapper;
     @Autowired
     private DishFlavorMapper dishFlavorMapper;
     @Autowired
     private SetmealDishMapper setmealDishMapper;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private MenuService menuService;
 
     /**
      * 新增菜品和对应的口味
@@ -64,6 +79,8 @@ public class DishServiceImpl extends ServiceImpl<DishMapper, Dish> implements Di
             });
 
         }
+        evictDishCache(Collections.singletonList(dishDTO.getCategoryId()));
+        menuService.bumpVersion();
         return rows;
     }
 
@@ -95,6 +112,7 @@ public class DishServiceImpl extends ServiceImpl<DishMapper, Dish> implements Di
             }
             rows += dishMapper.deleteById(id);
         }
+        menuService.bumpVersion();
 
         return rows == ids.size();
     }
@@ -121,6 +139,9 @@ public class DishServiceImpl extends ServiceImpl<DishMapper, Dish> implements Di
 
     @Transactional
     public int updateWithFlavor(DishDTO dishDTO){
+        //修改前的分类，菜品可能被移动到其他分类
+        Dish oldDish = dishMapper.selectById(dishDTO.getId());
+
         Dish dish = new Dish();
         BeanUtils.copyProperties(dishDTO, dish);
 
@@ -141,15 +162,27 @@ public class DishServiceImpl extends ServiceImpl<DishMapper, Dish> implements Di
                 dishFlavorMapper.insert(dishFlavor);
             });
         }
+        evictDishCache(Arrays.asList(oldDish != null ? oldDish.getCategoryId() : null, dishDTO.getCategoryId()));
+        menuService.bumpVersion();
         return rows;
     }
 
     public boolean startOrStop(Integer status, Long dishId){
+        //与update一样先查询菜品，用于确定需要清理的分类缓存；菜品不存在时不更新
+        Dish dish = dishMapper.selectById(dishId);
+        if (dish == null) {
+            return false;
+        }
         LambdaUpdateWrapper<Dish> updateWrapper = new LambdaUpdateWrapper<>();
         updateWrapper.eq(Dish::getId, dishId)
                 .set(Dish::getStatus, status);
 
-        return this.update(updateWrapper);
+        boolean success = this.update(updateWrapper);
+        if (success) {
+            evictDishCache(Collections.singletonList(dish.getCategoryId()));
+            menuService.bumpVersion();
+        }
+        return success;
     }
 
     /**
@@ -163,19 +196,39 @@ public class DishServiceImpl extends ServiceImpl<DishMapper, Dish> implements Di
                 .eq(dish.getCategoryId() != null, Dish::getCategoryId, dish.getCategoryId())
                 .eq(dish.getStatus() != null, Dish::getStatus, dish.getStatus());
         List<Dish> dishList = dishMapper.selectList(queryWrapper);
+        if (dishList.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        //一次查询出所有菜品的口味，按菜品id分组
+        List<Long> dishIds = dishList.stream().map(Dish::getId).collect(Collectors.toList());
+        Map<Long, List<DishFlavor>> flavorMap = dishFlavorMapper
+                .selectList(new LambdaQueryWrapper<DishFlavor>().in(DishFlavor::getDishId, dishIds))
+                .stream()
+                .collect(Collectors.groupingBy(DishFlavor::getDishId));
 
         List<DishVO> dishVOList = new ArrayList<>();
 
         for (Dish d : dishList) {
             DishVO dishVO = new DishVO();
             BeanUtils.copyProperties(d,dishVO);
-
-            List<DishFlavor> flavors = dishFlavorMapper.selectList(new LambdaQueryWrapper<DishFlavor>().eq(DishFlavor::getDishId, d.getId()));
-
-            dishVO.setFlavors(flavors);
+            dishVO.setFlavors(flavorMap.getOrDefault(d.getId(), new ArrayList<>()));
             dishVOList.add(dishVO);
         }
 
         return dishVOList;
     }
+
+    /**
+     * 删除指定分类的C端菜品缓存，在事务中调用时会推迟到事务提交之后执行
+     *
+     * @param categoryIds
+     */
+    private void evictDishCache(Collection<Long> categoryIds) {
+        Cache cache = cacheManager.getCache(DISH_CACHE);
+        categoryIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(cache::evict);
+    }
 }
\ No newline at end of file
@@ -18,6 +18,7 @@ import com.sky.exception.AccountNotFoundException;
 import com.sky.exception.PasswordErrorException;
 import com.sky.mapper.EmployeeMapper;
 import com.sky.result.PageResult;
+import com.sky.security.TokenRevocationRegistry;
 import com.sky.service.EmployeeService;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,6 +33,8 @@ public class EmployeeServiceImpl extends ServiceImpl<EmployeeMapper, Employee> i
 
     @Autowired
     private EmployeeMapper employeeMapper;
+    @Autowired
+    private TokenRevocationRegistry tokenRevocationRegistry;
 
     @Override
     public Employee getByUsername(String username) {
@@ -131,6 +134,11 @@ public class EmployeeServiceImpl extends ServiceImpl<EmployeeMapper, Employee> i
                         .set(Employee::getStatus, status)
                         .eq(Employee::getId, id)
         );
+        //禁用员工时吊销该员工已签发的全部令牌
+        //重新启用后保留吊销时间，禁用前签发的令牌（包括可能被盗用的令牌）仍然无效，重新登录获得的令牌签发时间更晚
+        if (StatusConstant.DISABLE.equals(status)) {
+            tokenRevocationRegistry.revokeEmployee(id);
+        }
     }
 
     @Override
@@ -0,0 +1,214 @@
+package com.sky.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sky.cache.MenuSnapshot;
+import com.sky.constant.StatusConstant;
+import com.sky.entity.Category;
+import com.sky.entity.Dish;
+import com.sky.entity.DishFlavor;
+import com.sky.entity.Setmeal;
+import com.sky.json.JacksonObjectMapper;
+import com.sky.mapper.CategoryMapper;
+import com.sky.mapper.DishFlavorMapper;
+import com.sky.mapper.DishMapper;
+import com.sky.mapper.SetmealMapper;
+import com.sky.result.Result;
+import com.sky.service.MenuService;
+import com.sky.vo.DishVO;
+import com.sky.vo.MenuSnapshotVO;
+import com.sky.vo.SetmealDishItemVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 菜单快照
+ * 每个节点在内存中保存当前版本的快照，快照只在版本变更后的第一次请求时构建一次，
+ * 序列化和gzip压缩的结果被所有请求共享。版本号保存在Redis中，变更时通过发布订阅通知所有节点。
+ * ETag由快照内容的摘要计算，版本号递增失败或Redis中的版本号丢失时也不会把不同的内容当作未修改。
+ */
+@Service
+@Slf4j
+public class MenuServiceImpl implements MenuService, MessageListener {
+
+    public static final String VERSION_KEY = "MENU_VERSION";
+    public static final String VERSION_CHANNEL = "sky:menu:version";
+
+    @Autowired
+    private CategoryMapper categoryMapper;
+    @Autowired
+    private DishMapper dishMapper;
+    @Autowired
+    private DishFlavorMapper dishFlavorMapper;
+    @Autowired
+    private SetmealMapper setmealMapper;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    //与MVC使用相同的序列化规则
+    private final ObjectMapper objectMapper = new JacksonObjectMapper();
+
+    private volatile MenuSnapshot snapshot;
+    //本节点收到的版本变更次数，构建期间发生变更时不保存构建结果
+    private final AtomicLong invalidations = new AtomicLong();
+
+    @PostConstruct
+    public void subscribe() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(VERSION_CHANNEL));
+    }
+
+    public MenuSnapshot getSnapshot() {
+        MenuSnapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        //同一节点同时只构建一次，其他请求等待构建结果
+        synchronized (this) {
+            current = snapshot;
+            if (current != null) {
+                return current;
+            }
+            long before = invalidations.get();
+            current = build();
+            if (invalidations.get() == before) {
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    public void bumpVersion() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publishNewVersion();
+                }
+            });
+        } else {
+            publishNewVersion();
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        invalidate();
+    }
+
+    /**
+     * 兜底丢失的版本变更消息：版本号与Redis中的不一致时丢弃快照
+     */
+    @Scheduled(fixedDelay = 30000)
+    public void checkVersion() {
+        MenuSnapshot current = snapshot;
+        if (current != null && current.getVersion() != currentVersion()) {
+            log.info("菜单版本已变更，丢弃本地快照：{}", current.getVersion());
+            invalidate();
+        }
+    }
+
+    private void publishNewVersion() {
+        try {
+            Long version = stringRedisTemplate.opsForValue().increment(VERSION_KEY);
+            stringRedisTemplate.convertAndSend(VERSION_CHANNEL, String.valueOf(version));
+            log.info("菜单版本变更为：{}", version);
+        } catch (Exception e) {
+            //ETag由快照内容计算，版本号未递增时重建的快照也会得到新的ETag；其他节点在版本检查时或本地快照重建后更新
+            log.error("菜单版本变更失败", e);
+        } finally {
+            //先递增版本号再丢弃快照，重建时读取到的是新版本号
+            invalidate();
+        }
+    }
+
+    private void invalidate() {
+        invalidations.incrementAndGet();
+        snapshot = null;
+    }
+
+    private long currentVersion() {
+        String version = stringRedisTemplate.opsForValue().get(VERSION_KEY);
+        return version == null ? 0 : Long.parseLong(version);
+    }
+
+    private MenuSnapshot build() {
+        //先读取版本号再查询数据，查询期间发生的修改会使版本号再次递增，快照随后被丢弃重建
+        long version = currentVersion();
+
+        //排序使用字符串列名，lambda列的泛型可变参数会产生unchecked警告
+        List<Category> categories = categoryMapper.selectList(new QueryWrapper<Category>()
+                .orderByAsc("sort")
+                .lambda()
+                .eq(Category::getStatus, StatusConstant.ENABLE));
+
+        //与分类列表一致，只包含启用分类下的菜品和套餐
+        List<Long> categoryIds = categories.stream().map(Category::getId).collect(Collectors.toList());
+
+        List<Dish> dishList = categoryIds.isEmpty() ? new ArrayList<>() : dishMapper.selectList(new LambdaQueryWrapper<Dish>()
+                .eq(Dish::getStatus, StatusConstant.ENABLE)
+                .in(Dish::getCategoryId, categoryIds));
+        Map<Long, List<DishFlavor>> flavorMap = dishList.isEmpty() ? Collections.emptyMap() : dishFlavorMapper
+                .selectList(new LambdaQueryWrapper<DishFlavor>()
+                        .in(DishFlavor::getDishId, dishList.stream().map(Dish::getId).collect(Collectors.toList())))
+                .stream()
+                .collect(Collectors.groupingBy(DishFlavor::getDishId));
+        List<DishVO> dishes = new ArrayList<>(dishList.size());
+        for (Dish dish : dishList) {
+            DishVO dishVO = new DishVO();
+            BeanUtils.copyProperties(dish, dishVO);
+            dishVO.setFlavors(flavorMap.getOrDefault(dish.getId(), new ArrayList<>()));
+            dishes.add(dishVO);
+        }
+
+        List<Setmeal> setmeals = categoryIds.isEmpty() ? new ArrayList<>() : setmealMapper.selectList(new LambdaQueryWrapper<Setmeal>()
+                .eq(Setmeal::getStatus, StatusConstant.ENABLE)
+                .in(Setmeal::getCategoryId, categoryIds));
+        List<SetmealDishItemVO> setmealDishes = setmeals.isEmpty() ? new ArrayList<>() : setmealMapper
+                .getDishItemBySetmealIds(setmeals.stream().map(Setmeal::getId).collect(Collectors.toList()));
+
+        MenuSnapshotVO menuSnapshotVO = MenuSnapshotVO.builder()
+                .version(version)
+                .categories(categories)
+                .dishes(dishes)
+                .setmeals(setmeals)
+                .setmealDishes(setmealDishes)
+                .build();
+
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(Result.success(menuSnapshotVO));
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(json);
+            }
+            log.info("构建菜单快照：版本{}，{}字节，压缩后{}字节", version, json.length, out.size());
+            return new MenuSnapshot(version, json, out.toByteArray());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,10 +1,9 @@
 package com.sky.service.impl;
 
-import com.alibaba.fastjson.JSON;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
-import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.core.metadata.OrderItem;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
@@ -16,28 +15,45 @@ import com.sky.entity.OrderDetail;
 import com.sky.entity.Orders;
 import com.sky.entity.ShoppingCart;
 import com.sky.exception.AddressBookBusinessException;
+import com.sky.exception.OrderBusinessException;
+import com.sky.exception.RateLimitExceededException;
 import com.sky.exception.ShoppingCartBusinessException;
 import com.sky.mapper.AddressBookMapper;
 import com.sky.mapper.OrderDetailMapper;
 import com.sky.mapper.OrderMapper;
 import com.sky.mapper.ShoppingCartMapper;
+import com.sky.properties.RateLimitProperties;
+import com.sky.resilience.RateLimiter;
+import com.sky.resilience.RateLimiterFactory;
 import com.sky.result.PageResult;
 import com.sky.service.OrderService;
+import com.sky.service.ShopService;
+import com.sky.statemachine.OrderStateMachine;
+import com.sky.statemachine.OrderStatusCounter;
+import com.sky.statemachine.OrderTransition;
+import com.sky.task.OrderTimeoutWheel;
+import com.sky.utils.KeysetCursor;
+import com.sky.utils.OrderNumberGenerator;
 import com.sky.vo.OrderStatisticsVO;
 import com.sky.vo.OrderSubmitVO;
 import com.sky.vo.OrderVO;
-import com.sky.websocket.WebSocketServer;
+import com.sky.websocket.NotificationAggregator;
+import com.sky.websocket.WebSocketTopics;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PostConstruct;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -46,6 +62,14 @@ import java.util.stream.Collectors;
 @Service
 @Slf4j
 public class OrderServiceImpl extends ServiceImpl<OrderMapper, Orders> implements OrderService {
+
+    //游标分页默认及最大每页记录数
+    private static final int DEFAULT_CURSOR_PAGE_SIZE = 10;
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    //排序通过Page指定列名，lambda列的orderBy只有泛型可变参数重载，会产生unchecked警告
+    private static final String ORDER_TIME_COLUMN = "order_time";
+    private static final String ID_COLUMN = "id";
+
     @Autowired
     private OrderMapper orderMapper;
     @Autowired
@@ -55,17 +79,47 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Orders> implement
     @Autowired
     private AddressBookMapper addressBookMapper;
     @Autowired
-    private WebSocketServer webSocketServer;
+    private NotificationAggregator notificationAggregator;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private OrderNumberGenerator orderNumberGenerator;
+    @Autowired
+    private OrderStateMachine orderStateMachine;
+    @Autowired
+    private OrderStatusCounter orderStatusCounter;
+    @Autowired
+    private OrderTimeoutWheel orderTimeoutWheel;
+    @Autowired
+    private ShopService shopService;
+    @Autowired
+    private RateLimiterFactory rateLimiterFactory;
+    @Autowired
+    private RateLimitProperties rateLimitProperties;
 
+    //催单限流，按用户和按用户的每个订单分别限制
+    private RateLimiter reminderUserLimiter;
+    private RateLimiter reminderOrderLimiter;
+
+    @PostConstruct
+    public void init() {
+        reminderUserLimiter = rateLimiterFactory.create("reminder:user", rateLimitProperties.getReminderUser());
+        reminderOrderLimiter = rateLimiterFactory.create("reminder:order", rateLimitProperties.getReminderOrder());
+    }
 
     /**
      * 用户下单
+     * 先在事务外完成地址、购物车的校验与订单数据的组装，再开启事务一次性写入，缩短连接与行锁的持有时间
      *
      * @param ordersSubmitDTO
      * @return
      */
-    @Transactional
     public OrderSubmitVO submitOrder(OrdersSubmitDTO ordersSubmitDTO) {
+        //店铺打烊时不能下单，营业状态保存在本地内存中
+        if (!shopService.isOpen()) {
+            throw new OrderBusinessException(MessageConstant.SHOP_CLOSED);
+        }
+
         //异常情况的处理（收货地址为空、超出配送范围、购物车为空）
         AddressBook addressBook = addressBookMapper.getById(ordersSubmitDTO.getAddressBookId());
         if (addressBook == null) {
@@ -73,13 +127,11 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Orders> implement
         }
 
         Long userId = BaseContext.getCurrentId();
-        ShoppingCart shoppingCart = new ShoppingCart();
-        shoppingCart.setUserId(userId);
 
         //查询当前用户的购物车数据
-        LambdaQueryWrapper<ShoppingCart> wrapper1 = new LambdaQueryWrapper<>();
-        wrapper1.eq(ShoppingCart::getUserId, BaseContext.getCurrentId());
-        List<ShoppingCart> shoppingCartList = shoppingCartMapper.selectList(wrapper1);
+        LambdaQueryWrapper<ShoppingCart> wrapper = new LambdaQueryWrapper<>();
+        wrapper.eq(ShoppingCart::getUserId, userId);
+        List<ShoppingCart> shoppingCartList = shoppingCartMapper.selectList(wrapper);
         if (shoppingCartList == null || shoppingCartList.isEmpty()) {
             throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_IS_NULL);
         }
@@ -90,33 +142,34 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Orders> implement
         order.setPhone(addressBook.getPhone());
         order.setAddress(addressBook.getDetail());
         order.setConsignee(addressBook.getConsignee());
-        order.setNumber(String.valueOf(System.currentTimeMillis()));
+        order.setNumber(orderNumberGenerator.nextNumber());
         order.setUserId(userId);
         order.setStatus(Orders.PENDING_PAYMENT);
         order.setPayStatus(Orders.UN_PAID);
         order.setOrderTime(LocalDateTime.now());
 
-        //向订单表插入1条数据
-        orderMapper.insert(order);
-
-        //订单明细数据
-        List<OrderDetail> orderDetailList = new ArrayList<>();
+        //订单明细数据，购物车中已读取的记录id，下单成功后按id删除
+        List<OrderDetail> orderDetailList = new ArrayList<>(shoppingCartList.size());
+        List<Long> cartIds = new ArrayList<>(shoppingCartList.size());
         for (ShoppingCart cart : shoppingCartList) {
             OrderDetail orderDetail = new OrderDetail();
             BeanUtils.copyProperties(cart, orderDetail);
-            orderDetail.setOrderId(order.getId());
+            orderDetail.setId(null);
             orderDetailList.add(orderDetail);
+            cartIds.add(cart.getId());
         }
 
-        //向明细表插入n条数据
-        for (OrderDetail orderDetail : orderDetailList) {
-            orderDetailMapper.insert(orderDetail);
-        }
+        //校验全部通过后才开启事务：插入订单、批量插入明细、清理购物车
+        transactionTemplate.executeWithoutResult(status -> {
+            orderMapper.insert(order);
+
+            orderDetailList.forEach(orderDetail -> orderDetail.setOrderId(order.getId()));
+            orderDetailMapper.insertBatch(orderDetailList);
 
-        //清理购物车中的数据
-        LambdaUpdateWrapper<ShoppingCart> wrapper2 = new LambdaUpdateWrapper<>();
-        wrapper2.eq(ShoppingCart::getUserId, userId);
-        shoppingCartMapper.delete(wrapper2);
+            shoppingCartMapper.deleteBatchIds(cartIds);
+        });
+        orderStatusCounter.increment(Orders.PENDING_PAYMENT);
+        orderTimeoutWheel.register(order.getId(), order.getOrderTime());
 
         //封装返回结果
         OrderSubmitVO orderSubmitVO = OrderSubmitVO.builder()
@@ -131,14 +184,22 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Orders> implement
 
     public PageResult pageQuery4User(int page, int pageSize, Integer status) {
         Page<Orders> pageOfOrders = new Page<>(page, pageSize);
+        pageOfOrders.addOrder(OrderItem.desc(ORDER_TIME_COLUMN));
         LambdaQueryWrapper<Orders> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(Orders::getUserId, BaseContext.getCurrentId());
         wrapper.eq(status != null, Orders::getStatus, status);
-        wrapper.orderByDesc(Orders::getOrderTime);
         IPage<Orders> ordersIPage = orderMapper.selectPage(pageOfOrders, wrapper);
         return new PageResult(ordersIPage.getTotal(), ordersIPage.getRecords());
     }
 
+    public PageResult cursorQuery4User(String cursor, int pageSize, Integer status, Boolean count) {
+        Long userId = BaseContext.getCurrentId();
+        return this.cursorPage(() -> new LambdaQueryWrapper<Orders>()
+                        .eq(Orders::getUserId, userId)
+                        .eq(status != null, Orders::getStatus, status),
+                cursor, pageSize, count, records -> records);
+    }
+
     public OrderVO details(Long id){
         Orders order = orderMapper.selectById(id);
         if (order == null) {
@@ -156,18 +217,9 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Orders> implement
     }
 
     public boolean userCancelById(Long id){
-        Orders order = orderMapper.selectById(id);
-        if (order == null) {
-            return false;
-        }
-        if (order.getStatus() > Orders.TO_BE_CONFIRMED) {
-            return false;
-        }
-        order.setStatus(Orders.CANCELLED);
-        order.setCancelReason("用户取消");
-        order.setCancelTime(LocalDateTime.now());
-        orderMapper.updateById(order);
-        return true;
+        return orderStateMachine.fire(id, OrderTransition.USER_CANCEL, wrapper -> wrapper
+                .set(Orders::getCancelReason, "用户取消")
+                .set(Orders::getCancelTime, LocalDateTime.now()));
     }
 
     public boolean repetition(Long id){
@@ -188,8 +240,31 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Orders> implement
     public PageResult conditionSearch(OrdersPageQueryDTO ordersPageQueryDTO){
         // 创建分页对象
         Page<Orders> page = new Page<>(ordersPageQueryDTO.getPage(), ordersPageQueryDTO.getPageSize());
+        page.addOrder(OrderItem.desc(ORDER_TIME_COLUMN));
 
         // 创建查询条件
+        LambdaQueryWrapper<Orders> queryWrapper = this.buildSearchWrapper(ordersPageQueryDTO);
+
+
+        // 执行分页查询
+        IPage<Orders> resultPage = orderMapper.selectPage(page, queryWrapper);
+
+        return new PageResult(resultPage.getTotal(), this.getOrderVOList(resultPage.getRecords()));
+    }
+
+    public PageResult cursorSearch(OrdersPageQueryDTO ordersPageQueryDTO) {
+        return this.cursorPage(() -> this.buildSearchWrapper(ordersPageQueryDTO),
+                ordersPageQueryDTO.getCursor(), ordersPageQueryDTO.getPageSize(), ordersPageQueryDTO.getCount(),
+                this::getOrderVOList);
+    }
+
+    /**
+     * 构造订单搜索的查询条件（不含排序）
+     *
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    private LambdaQueryWrapper<Orders> buildSearchWrapper(OrdersPageQueryDTO ordersPageQueryDTO) {
         LambdaQueryWrapper<Orders> queryWrapper = new LambdaQueryWrapper<>();
         queryWrapper.like(ordersPageQueryDTO.getNumber() != null, Orders::getNumber, ordersPageQueryDTO.getNumber());
         queryWrapper.like(ordersPageQueryDTO.getPhone() != null, Orders::getPhone, ordersPageQueryDTO.getPhone());
@@ -197,23 +272,53 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Orders> implement
         queryWrapper.eq(ordersPageQueryDTO.getUserId() != null, Orders::getUserId, ordersPageQueryDTO.getUserId());
         queryWrapper.between(ordersPageQueryDTO.getBeginTime() != null && ordersPageQueryDTO.getEndTime() != null,
                 Orders::getOrderTime, ordersPageQueryDTO.getBeginTime(), ordersPageQueryDTO.getEndTime());
-        queryWrapper.orderByDesc(Orders::getOrderTime);
+        return queryWrapper;
+    }
 
+    /**
+     * 按 (order_time, id) 倒序进行游标分页查询
+     * 用 where (order_time, id) < (游标) 定位下一页，不使用offset，翻到多深耗时都不变；
+     * 多查一条用于判断是否还有下一页，只有客户端要求时才执行count
+     *
+     * @param conditions 查询条件（每次调用返回新的wrapper）
+     * @param cursor     上一页返回的游标，空字符串表示第一页
+     * @param pageSize
+     * @param count      是否统计总记录数
+     * @param converter  将本页订单转换为返回给前端的记录
+     * @return
+     */
+    private PageResult cursorPage(Supplier<LambdaQueryWrapper<Orders>> conditions, String cursor, int pageSize,
+                                  Boolean count, Function<List<Orders>, List<?>> converter) {
+        KeysetCursor after = this.decodeCursor(cursor);
+        int size = pageSize > 0 ? Math.min(pageSize, MAX_CURSOR_PAGE_SIZE) : DEFAULT_CURSOR_PAGE_SIZE;
+
+        LambdaQueryWrapper<Orders> wrapper = conditions.get();
+        if (after != null) {
+            wrapper.and(w -> w.lt(Orders::getOrderTime, after.getTime())
+                    .or(x -> x.eq(Orders::getOrderTime, after.getTime()).lt(Orders::getId, after.getId())));
+        }
+        //多查一条，不统计总数
+        Page<Orders> page = new Page<>(1, size + 1, false);
+        page.addOrder(OrderItem.desc(ORDER_TIME_COLUMN), OrderItem.desc(ID_COLUMN));
+        List<Orders> records = orderMapper.selectPage(page, wrapper).getRecords();
+
+        String nextCursor = null;
+        if (records.size() > size) {
+            records = new ArrayList<>(records.subList(0, size));
+            Orders last = records.get(size - 1);
+            nextCursor = new KeysetCursor(last.getOrderTime(), last.getId()).encode();
+        }
 
-        // 执行分页查询
-        IPage<Orders> resultPage = orderMapper.selectPage(page, queryWrapper);
+        long total = Boolean.TRUE.equals(count) ? orderMapper.selectCount(conditions.get()) : -1;
+        return new PageResult(total, converter.apply(records), nextCursor);
+    }
 
-        // 转换为 OrderVO 列表
-        List<OrderVO> orderVOList = new ArrayList<>();
-        for (Orders order : resultPage.getRecords()) {
-            OrderVO orderVO = new OrderVO();
-            BeanUtils.copyProperties(order, orderVO);
-            String dishStr = this.getOrderDishesStr(order);
-            orderVO.setOrderDishes(dishStr);
-            orderVOList.add(orderVO);
+    private KeysetCursor decodeCursor(String cursor) {
+        try {
+            return KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new OrderBusinessException(MessageConstant.CURSOR_INVALID);
         }
-
-        return new PageResult(resultPage.getTotal(), orderVOList);
     }
 
     /**
@@ -222,18 +327,10 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Orders> implement
      * @return
      */
     public OrderStatisticsVO statistics() {
-        // 根据状态，分别查询出待接单、待派送、派送中的订单数量
-        LambdaQueryWrapper<Orders> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(Orders::getStatus, Orders.TO_BE_CONFIRMED);
-        Integer toBeConfirmed = orderMapper.selectCount(queryWrapper);
-
-        queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(Orders::getStatus, Orders.CONFIRMED);
-        Integer confirmed = orderMapper.selectCount(queryWrapper);
-
-        queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(Orders::getStatus, Orders.DELIVERY_IN_PROGRESS);
-        Integer deliveryInProgress = orderMapper.selectCount(queryWrapper);
+        // 从内存计数器中读取待接单、待派送、派送中的订单数量
+        Integer toBeConfirmed = orderStatusCounter.get(Orders.TO_BE_CONFIRMED);
+        Integer confirmed = orderStatusCounter.get(Orders.CONFIRMED);
+        Integer deliveryInProgress = orderStatusCounter.get(Orders.DELIVERY_IN_PROGRESS);
 
         // 将查询出的数据封装到orderStatisticsVO中响应
         OrderStatisticsVO orderStatisticsVO = new OrderStatisticsVO();
@@ -243,78 +340,76 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Orders> implement
         return orderStatisticsVO;
     }
 
-    private String getOrderDishesStr(Orders orders) {
-        // 查询订单菜品详情信息（订单中的菜品和数量）
+    /**
+     * 将一页订单转换为OrderVO列表，整页订单的明细通过一次 order_id in (...) 查询获取
+     *
+     * @param ordersList
+     * @return
+     */
+    private List<OrderVO> getOrderVOList(List<Orders> ordersList) {
+        if (ordersList == null || ordersList.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // 一次性查询本页所有订单的菜品详情信息，并按订单id分组
+        List<Long> orderIds = ordersList.stream().map(Orders::getId).collect(Collectors.toList());
         LambdaQueryWrapper<OrderDetail> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(OrderDetail::getOrderId, orders.getId());
-        List<OrderDetail> orderDetailList = orderDetailMapper.selectList(queryWrapper);
+        queryWrapper.in(OrderDetail::getOrderId, orderIds);
+        Map<Long, List<OrderDetail>> orderDetailMap = orderDetailMapper.selectList(queryWrapper).stream()
+                .collect(Collectors.groupingBy(OrderDetail::getOrderId));
 
-        // 将每一条订单菜品信息拼接为字符串（格式：宫保鸡丁*3；）
-        List<String> orderDishList = orderDetailList.stream().map(x -> {
-            String orderDish = x.getName() + "*" + x.getNumber() + ";";
-            return orderDish;
-        }).collect(Collectors.toList());
+        List<OrderVO> orderVOList = new ArrayList<>(ordersList.size());
+        for (Orders order : ordersList) {
+            OrderVO orderVO = new OrderVO();
+            BeanUtils.copyProperties(order, orderVO);
+            orderVO.setOrderDishes(getOrderDishesStr(orderDetailMap.getOrDefault(order.getId(), Collections.emptyList())));
+            orderVOList.add(orderVO);
+        }
+        return orderVOList;
+    }
 
-        // 将该订单对应的所有菜品信息拼接在一起
-        return String.join("", orderDishList);
+    private String getOrderDishesStr(List<OrderDetail> orderDetailList) {
+        // 将每一条订单菜品信息拼接为字符串（格式：宫保鸡丁*3；）
+        StringBuilder orderDishes = new StringBuilder();
+        for (OrderDetail x : orderDetailList) {
+            orderDishes.append(x.getName()).append("*").append(x.getNumber()).append(";");
+        }
+        return orderDishes.toString();
     }
 
     public boolean confirm(OrdersConfirmDTO ordersConfirmDTO){
-        Orders order = orderMapper.selectById(ordersConfirmDTO.getId());
-        if (order == null) {
-            return false;
-        }
-        order.setStatus(Orders.CONFIRMED);
-        orderMapper.updateById(order);
-        return true;
+        return orderStateMachine.fire(ordersConfirmDTO.getId(), OrderTransition.CONFIRM);
     }
 
     public boolean rejection(OrdersRejectionDTO ordersRejectionDTO){
-        Orders order = orderMapper.selectById(ordersRejectionDTO.getId());
-        if (order == null) {
-            return false;
-        }
-        order.setStatus(Orders.CANCELLED);
-        order.setRejectionReason(ordersRejectionDTO.getRejectionReason());
-        order.setCancelTime(LocalDateTime.now());
-        orderMapper.updateById(order);
-        return true;
+        return orderStateMachine.fire(ordersRejectionDTO.getId(), OrderTransition.REJECT, wrapper -> wrapper
+                .set(Orders::getRejectionReason, ordersRejectionDTO.getRejectionReason())
+                .set(Orders::getCancelTime, LocalDateTime.now()));
     }
 
     public boolean cancel(OrdersCancelDTO ordersCancelDTO){
-        Orders order = orderMapper.selectById(ordersCancelDTO.getId());
-        if (order == null) {
-            return false;
-        }
-        order.setStatus(Orders.CANCELLED);
-        order.setCancelReason(ordersCancelDTO.getCancelReason());
-        order.setCancelTime(LocalDateTime.now());
-        orderMapper.updateById(order);
-        return true;
+        return orderStateMachine.fire(ordersCancelDTO.getId(), OrderTransition.ADMIN_CANCEL, wrapper -> wrapper
+                .set(Orders::getCancelReason, ordersCancelDTO.getCancelReason())
+                .set(Orders::getCancelTime, LocalDateTime.now()));
     }
 
     public boolean delivery(Long id){
-        Orders order = orderMapper.selectById(id);
-        if (order == null) {
-            return false;
-        }
-        order.setStatus(Orders.DELIVERY_IN_PROGRESS);
-        orderMapper.updateById(order);
-        return true;
+        return orderStateMachine.fire(id, OrderTransition.DELIVER);
     }
 
     public boolean complete(Long id){
-        Orders order = orderMapper.selectById(id);
-        if (order == null) {
-            return false;
-        }
-        order.setStatus(Orders.COMPLETED);
-        order.setDeliveryTime(LocalDateTime.now());
-        orderMapper.updateById(order);
-        return true;
+        return orderStateMachine.fire(id, OrderTransition.COMPLETE, wrapper -> wrapper
+                .set(Orders::getDeliveryTime, LocalDateTime.now()));
     }
 
     public boolean reminder(Long id){
+        //先限流再查询数据库，超出限额的请求不访问数据库
+        //订单限额按用户区分，其他用户无法耗尽该订单的限额；先检查订单限额，被拒绝时不消耗用户的限额
+        Long userId = BaseContext.getCurrentId();
+        if (!reminderOrderLimiter.tryAcquire(userId + ":" + id) || !reminderUserLimiter.tryAcquire(userId)) {
+            throw new RateLimitExceededException(MessageConstant.TOO_MANY_REQUESTS);
+        }
+
         // 查询订单是否存在
         Orders orders = orderMapper.selectById(id);
         if (orders == null) {
@@ -322,11 +417,12 @@ public class OrderServiceImpl extends ServiceImpl<OrderMapper, Orders> implement
         }
 
         //基于WebSocket实现催单
-        Map map = new HashMap();
+        Map<String, Object> map = new HashMap<>();
         map.put("type", 2);//2代表用户催单
         map.put("orderId", id);
         map.put("content", "订单号：" + orders.getNumber());
-        webSocketServer.sendToAllClient(JSON.toJSONString(map));
+        //短时间内的催单合并发送，同一订单的重复催单只发送一次
+        notificationAggregator.submit(WebSocketTopics.ADMIN, map);
         return true;
     }
 
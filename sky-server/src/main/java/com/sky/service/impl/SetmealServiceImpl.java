@@ -16,6 +16,7 @@ import com.sky.mapper.DishMapper;
 import com.sky.mapper.SetmealDishMapper;
 import com.sky.mapper.SetmealMapper;
 import com.sky.result.PageResult;
+import com.sky.service.MenuService;
 import com.sky.service.SetmealService;
 import com.sky.vo.DishItemVO;
 import com.sky.vo.SetmealVO;
@@ -42,6 +43,9 @@ public class SetmealServiceImpl extends ServiceImpl<SetmealMapper, Setmeal> impl
     @Autowired
     private DishMapper dishMapper;
 
+    @Autowired
+    private MenuService menuService;
+
     @Transactional
     public int addSetmeal(SetmealDTO setmealDTO) {
         Setmeal setmeal = new Setmeal();
@@ -59,6 +63,7 @@ public class SetmealServiceImpl extends ServiceImpl<SetmealMapper, Setmeal> impl
                 setmealDishMapper.insert(setmealDish);
             });
         }
+        menuService.bumpVersion();
         return 1;
     }
 
@@ -98,7 +103,8 @@ public class SetmealServiceImpl extends ServiceImpl<SetmealMapper, Setmeal> impl
         LambdaQueryWrapper<SetmealDish> dishWrapper = new LambdaQueryWrapper<>();
         dishWrapper.in(SetmealDish::getSetmealId, ids);
         setmealDishMapper.delete(dishWrapper);
-        
+
+        menuService.bumpVersion();
         return true;
     }
 
@@ -151,6 +157,7 @@ public class SetmealServiceImpl extends ServiceImpl<SetmealMapper, Setmeal> impl
             });
         }
 
+        menuService.bumpVersion();
         return rows;
     }
 
@@ -177,7 +184,11 @@ public class SetmealServiceImpl extends ServiceImpl<SetmealMapper, Setmeal> impl
         updateWrapper.eq(Setmeal::getId, id)
                      .set(Setmeal::getStatus, status);
 
-        return this.update(updateWrapper);
+        boolean success = this.update(updateWrapper);
+        if (success) {
+            menuService.bumpVersion();
+        }
+        return success;
     }
 
     public List<Setmeal> getSetmealListById(Setmeal setmeal) {
@@ -0,0 +1,103 @@
+package com.sky.service.impl;
+
+import com.sky.constant.MessageConstant;
+import com.sky.constant.StatusConstant;
+import com.sky.exception.ShopStatusUnknownException;
+import com.sky.redis.LegacyRedisKeyMigrator;
+import com.sky.service.ShopService;
+import com.sky.websocket.WebSocketEventPublisher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 店铺营业状态
+ * 每个节点在内存中保存营业状态，修改时通过Redis发布订阅通知所有节点；
+ * 同时定期从Redis重新读取，兜底订阅中断的情况，Redis不可用时保留最后一次读取到的值。
+ * Redis中没有营业状态时视为打烊中；从未成功读取过时营业状态未知，不按打烊处理。
+ */
+@Service
+@Slf4j
+public class ShopServiceImpl implements ShopService, MessageListener {
+
+    public static final String KEY = "SHOP_STATUS";
+    public static final String STATUS_CHANNEL = "sky:shop:status";
+    //只有一家店铺
+    public static final Long SHOP_ID = 1L;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+    @Autowired
+    private LegacyRedisKeyMigrator legacyRedisKeyMigrator;
+    @Autowired
+    private WebSocketEventPublisher webSocketEventPublisher;
+
+    private volatile Integer status;
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(STATUS_CHANNEL));
+        //升级前的营业状态使用JDK序列化的key保存
+        legacyRedisKeyMigrator.migrate(KEY, Integer.class);
+        refresh();
+    }
+
+    public void setStatus(Integer status) {
+        redisTemplate.opsForValue().set(KEY, status);
+        this.status = status;
+        stringRedisTemplate.convertAndSend(STATUS_CHANNEL, String.valueOf(status));
+        webSocketEventPublisher.shopStatusChanged(SHOP_ID, status);
+    }
+
+    public Integer getStatus() {
+        Integer current = status;
+        return current != null ? current : StatusConstant.DISABLE;
+    }
+
+    public boolean isOpen() {
+        Integer current = status;
+        if (current == null) {
+            refresh();
+            current = status;
+        }
+        if (current == null) {
+            throw new ShopStatusUnknownException(MessageConstant.SHOP_STATUS_UNKNOWN);
+        }
+        return StatusConstant.ENABLE.equals(current);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        status = Integer.valueOf(new String(message.getBody(), StandardCharsets.UTF_8));
+        log.info("店铺营业状态变更为：{}", status == 1 ? "营业中" : "打烊中");
+    }
+
+    /**
+     * 定期从Redis重新读取营业状态
+     */
+    @Scheduled(fixedDelayString = "${sky.shop.status-refresh-interval:10000}",
+            initialDelayString = "${sky.shop.status-refresh-interval:10000}")
+    public void refresh() {
+        try {
+            Integer current = (Integer) redisTemplate.opsForValue().get(KEY);
+            //从未设置过营业状态时为打烊中
+            status = current != null ? current : StatusConstant.DISABLE;
+        } catch (Exception e) {
+            log.warn("读取店铺营业状态失败，保留最后一次读取到的值：{}", status, e);
+        }
+    }
+}
@@ -3,7 +3,10 @@ package com.sky.service.impl;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.sky.constant.MessageConstant;
 import com.sky.context.BaseContext;
 import com.sky.dto.UserLoginDTO;
@@ -11,15 +14,21 @@ import com.sky.entity.User;
 import com.sky.exception.LoginFailedException;
 import com.sky.mapper.UserMapper;
 import com.sky.properties.WeChatProperties;
+import com.sky.resilience.CircuitBreaker;
 import com.sky.service.UserService;
 import com.sky.utils.HttpClientUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 
 @Service
 @Slf4j
@@ -33,55 +42,178 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
     @Autowired
     private UserMapper userMapper;
 
+    //openid -> 用户id，老用户登录时不再查询数据库
+    private Cache<String, Long> userIdCache;
+    //限制同时等待微信接口的请求数，微信接口变慢时不会占满线程
+    private Semaphore loginPermits;
+    private CircuitBreaker loginCircuitBreaker;
+    //openid列上有唯一索引时才能使用upsert注册新用户
+    private boolean openidUnique;
+
+    @PostConstruct
+    public void init() {
+        userIdCache = Caffeine.newBuilder()
+                .maximumSize(weChatProperties.getOpenidCacheSize())
+                .build();
+        loginPermits = new Semaphore(weChatProperties.getLoginMaxConcurrency());
+        loginCircuitBreaker = new CircuitBreaker("wxLogin", weChatProperties.getLoginFailureThreshold(),
+                weChatProperties.getLoginOpenDuration().toMillis());
+
+        try {
+            openidUnique = !userMapper.selectOpenidUniqueIndexes().isEmpty();
+        } catch (Exception e) {
+            log.warn("查询user表openid唯一索引失败", e);
+        }
+        if (!openidUnique) {
+            log.warn("user表openid列没有唯一索引，新用户注册使用先查询再插入，请执行db/user_openid_unique_index.sql");
+        }
+    }
+
     /**
      * 微信登录
      * @param userLoginDTO
      * @return
      */
     public User wxLogin(UserLoginDTO userLoginDTO) {
-        String openid = getOpenid(userLoginDTO.getCode());
+        User user;
+        try {
+            user = wxLoginAsync(userLoginDTO).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        BaseContext.setCurrentId(user.getId());
 
+        //返回这个用户对象
+        return user;
+    }
+
+    /**
+     * 异步微信登录
+     * 微信接口在http线程池中调用，查询和注册用户也在该线程中执行
+     * @param userLoginDTO
+     * @return
+     */
+    public CompletableFuture<User> wxLoginAsync(UserLoginDTO userLoginDTO) {
+        return getOpenidAsync(userLoginDTO.getCode()).thenApply(this::loginByOpenid);
+    }
+
+    /**
+     * 根据openid获取用户，新用户自动完成注册
+     * @param openid
+     * @return
+     */
+    private User loginByOpenid(String openid) {
         //判断openid是否为空，如果为空表示登录失败，抛出业务异常
         if(openid == null){
             throw new LoginFailedException(MessageConstant.LOGIN_FAILED);
         }
 
-        //判断当前用户是否为新用户
-        LambdaQueryWrapper<User> lambdaQueryWrapper = new LambdaQueryWrapper<>();
-        lambdaQueryWrapper.eq(User::getOpenid, openid);
-        User user = userMapper.selectOne(lambdaQueryWrapper);
+        Long userId = userIdCache.getIfPresent(openid);
+        if (userId == null) {
+            userId = openidUnique ? upsert(openid) : selectOrInsert(openid);
+            userIdCache.put(openid, userId);
+        }
+
+        //登录只需要用户的id和openid
+        return User.builder()
+                .id(userId)
+                .openid(openid)
+                .build();
+    }
 
+    /**
+     * 新用户插入，老用户只返回id，并发登录也不会产生重复的用户
+     * @param openid
+     * @return 用户id
+     */
+    private Long upsert(String openid) {
+        User user = User.builder()
+                .openid(openid)
+                .createTime(LocalDateTime.now())
+                .build();
+        userMapper.upsertByOpenid(user);
+        return user.getId();
+    }
 
-        //如果是新用户，自动完成注册
-        if(user == null){
+    /**
+     * 没有唯一索引时先查询用户，新用户再插入
+     * @param openid
+     * @return 用户id
+     */
+    private Long selectOrInsert(String openid) {
+        //排序使用字符串列名，lambda列的泛型可变参数会产生unchecked警告
+        User user = userMapper.selectOne(new QueryWrapper<User>()
+                .orderByAsc("id")
+                .lambda()
+                .eq(User::getOpenid, openid)
+                .last("limit 1"));
+        if (user == null) {
             user = User.builder()
                     .openid(openid)
                     .createTime(LocalDateTime.now())
                     .build();
             userMapper.insert(user);
         }
-        BaseContext.setCurrentId(user.getId());
-
-        //返回这个用户对象
-        return user;
+        return user.getId();
     }
 
     /**
      * 调用微信接口服务，获取微信用户的openid
+     * 并发数超过上限或熔断器打开时直接拒绝，不再等待微信接口
      * @param code
      * @return
      */
-    private String getOpenid(String code){
+    private CompletableFuture<String> getOpenidAsync(String code){
+        if (!loginPermits.tryAcquire()) {
+            return failedLogin(MessageConstant.LOGIN_BUSY);
+        }
+        if (!loginCircuitBreaker.tryAcquirePermission()) {
+            loginPermits.release();
+            log.warn("微信登录接口已熔断");
+            return failedLogin(MessageConstant.LOGIN_BUSY);
+        }
+
         //调用微信接口服务，获得当前微信用户的openid
+        return HttpClientUtil.doGetAsync(WX_LOGIN, buildLoginParams(code))
+                .handle((json, ex) -> {
+                    loginPermits.release();
+                    //请求异常或响应状态不是200时计为失败；code无效等业务错误不计入
+                    if (ex == null) {
+                        loginCircuitBreaker.onSuccess();
+                        return parseOpenid(json);
+                    }
+                    Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                    if (cause instanceof RejectedExecutionException) {
+                        //http线程池已满，请求没有发出，不计入熔断器
+                        loginCircuitBreaker.releasePermission();
+                        log.warn("调用微信登录接口被拒绝：{}", cause.getMessage());
+                        throw new LoginFailedException(MessageConstant.LOGIN_BUSY);
+                    }
+                    loginCircuitBreaker.onFailure();
+                    throw new LoginFailedException(MessageConstant.LOGIN_FAILED);
+                });
+    }
+
+    private Map<String, String> buildLoginParams(String code) {
         Map<String, String> map = new HashMap<>();
         map.put("appid",weChatProperties.getAppid());
         map.put("secret",weChatProperties.getSecret());
         map.put("js_code",code);
         map.put("grant_type","authorization_code");
-        String json = HttpClientUtil.doGet(WX_LOGIN, map);
+        return map;
+    }
 
+    private String parseOpenid(String json) {
         JSONObject jsonObject = JSON.parseObject(json);
-        String openid = jsonObject.getString("openid");
-        return openid;
+        return jsonObject == null ? null : jsonObject.getString("openid");
+    }
+
+    private <T> CompletableFuture<T> failedLogin(String message) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(new LoginFailedException(message));
+        return future;
     }
-}
\ No newline at end of file
+}
@@ -11,6 +11,7 @@ import com.sky.mapper.OrderMapper;
 import com.sky.mapper.SetmealMapper;
 import com.sky.mapper.UserMapper;
 import com.sky.service.WorkspaceService;
+import com.sky.statemachine.OrderStatusCounter;
 import com.sky.vo.BusinessDataVO;
 import com.sky.vo.DishOverViewVO;
 import com.sky.vo.OrderOverViewVO;
@@ -36,6 +37,8 @@ public class WorkspaceServiceImpl implements WorkspaceService {
     private DishMapper dishMapper;
     @Autowired
     private SetmealMapper setmealMapper;
+    @Autowired
+    private OrderStatusCounter orderStatusCounter;
 
     /**
      * 根据时间段统计营业数据
@@ -101,28 +104,19 @@ public class WorkspaceServiceImpl implements WorkspaceService {
      */
     public OrderOverViewVO getOrderOverView() {
         //待接单
-        LambdaQueryWrapper<Orders> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(Orders::getStatus, Orders.TO_BE_CONFIRMED);
-        Integer waitingOrders = orderMapper.selectCount(wrapper);
+        Integer waitingOrders = orderStatusCounter.get(Orders.TO_BE_CONFIRMED);
 
         //待派送
-        wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(Orders::getStatus, Orders.CONFIRMED);
-        Integer deliveredOrders = orderMapper.selectCount(wrapper);
+        Integer deliveredOrders = orderStatusCounter.get(Orders.CONFIRMED);
 
         //已完成
-        wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(Orders::getStatus, Orders.COMPLETED);
-        Integer completedOrders = orderMapper.selectCount(wrapper);
+        Integer completedOrders = orderStatusCounter.get(Orders.COMPLETED);
 
         //已取消
-        wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(Orders::getStatus, Orders.CANCELLED);
-        Integer cancelledOrders = orderMapper.selectCount(wrapper);
+        Integer cancelledOrders = orderStatusCounter.get(Orders.CANCELLED);
 
         //全部订单
-        wrapper = new LambdaQueryWrapper<>();
-        Integer allOrders = orderMapper.selectCount(wrapper);
+        Integer allOrders = orderStatusCounter.total();
 
         return OrderOverViewVO.builder()
                 .waitingOrders(waitingOrders)
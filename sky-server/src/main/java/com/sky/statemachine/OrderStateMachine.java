@@ -0,0 +1,104 @@
+package com.sky.statemachine;
+
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.sky.entity.Orders;
+import com.sky.mapper.OrderMapper;
+import com.sky.websocket.WebSocketEventPublisher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * 订单状态机
+ * 每次流转只执行一条条件更新：update orders set status = ?, ... where id = ? and status in (允许的源状态)，
+ * 受影响行数为1表示本次流转成功；为0表示订单不存在或已被其他请求/定时任务改为别的状态。
+ * 取消类流转有多个源状态，无法得知流转前的状态，源状态的计数由计数器异步对账修正
+ */
+@Component
+@Slf4j
+public class OrderStateMachine {
+
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private OrderStatusCounter orderStatusCounter;
+    @Autowired
+    private WebSocketEventPublisher webSocketEventPublisher;
+
+    /**
+     * 执行状态流转
+     *
+     * @param id
+     * @param transition
+     * @return 是否流转成功
+     */
+    public boolean fire(Long id, OrderTransition transition) {
+        return fire(id, transition, null);
+    }
+
+    /**
+     * 执行状态流转，并同时更新其他字段（如取消原因、取消时间）
+     *
+     * @param id
+     * @param transition
+     * @param changes    需要一起更新的字段，可为null
+     * @return 是否流转成功
+     */
+    public boolean fire(Long id, OrderTransition transition, Consumer<LambdaUpdateWrapper<Orders>> changes) {
+        LambdaUpdateWrapper<Orders> wrapper = new LambdaUpdateWrapper<>();
+        wrapper.set(Orders::getStatus, transition.getTo());
+        if (changes != null) {
+            changes.accept(wrapper);
+        }
+        wrapper.eq(Orders::getId, id)
+                .in(Orders::getStatus, transition.getFrom());
+
+        if (orderMapper.update(null, wrapper) != 1) {
+            log.info("订单状态流转失败，订单不存在或状态已变更：{}，{}", id, transition);
+            return false;
+        }
+        if (transition.getFrom().size() == 1) {
+            orderStatusCounter.transfer(transition.getFrom().get(0), transition.getTo(), 1);
+        } else {
+            //多个源状态时无法得知流转前的状态，由计数器异步对账修正源状态的计数
+            orderStatusCounter.transferFromUnknown(transition.getTo());
+        }
+        webSocketEventPublisher.orderStatusChanged(id, transition.getTo());
+        return true;
+    }
+
+    /**
+     * 批量执行状态流转：update orders set status = ?, ... where id in (...) and status = 源状态，
+     * 仅支持只有一个源状态的流转。
+     * 批量流转无法得知哪些订单流转成功，不推送订单状态变更，客户端重新查询订单时获取最新状态
+     *
+     * @param ids
+     * @param transition
+     * @param changes    需要一起更新的字段，可为null
+     * @return 流转成功的订单数量
+     */
+    public int fireBatch(Collection<Long> ids, OrderTransition transition, Consumer<LambdaUpdateWrapper<Orders>> changes) {
+        if (transition.getFrom().size() != 1) {
+            throw new IllegalArgumentException("批量流转只支持单一源状态：" + transition);
+        }
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+        Integer from = transition.getFrom().get(0);
+
+        LambdaUpdateWrapper<Orders> wrapper = new LambdaUpdateWrapper<>();
+        wrapper.set(Orders::getStatus, transition.getTo());
+        if (changes != null) {
+            changes.accept(wrapper);
+        }
+        wrapper.in(Orders::getId, ids)
+                .eq(Orders::getStatus, from);
+
+        int rows = orderMapper.update(null, wrapper);
+        orderStatusCounter.transfer(from, transition.getTo(), rows);
+        return rows;
+    }
+}
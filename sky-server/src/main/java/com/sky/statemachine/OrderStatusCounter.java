@@ -0,0 +1,144 @@
+package com.sky.statemachine;
+
+import com.sky.entity.Orders;
+import com.sky.mapper.OrderMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 各状态订单数量的内存计数器
+ * 启动时通过一条 group by status 查询初始化，之后在下单和每次状态流转时增量维护，
+ * 并定时与数据库对账（用于纠正其他节点的流转以及支付回调等未经过状态机的变更）；
+ * 源状态未知的流转（取消类）会请求一次对账，由定时任务线程合并执行；
+ * 对账时用数据库的计数创建新的计数器整体替换，不在旧计数上累加差值
+ */
+@Component
+@Slf4j
+public class OrderStatusCounter {
+
+    //下标为订单状态 1待付款 2待接单 3已接单 4派送中 5已完成 6已取消
+    private volatile LongAdder[] counters = newCounters(new long[Orders.CANCELLED + 1]);
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+
+    /**
+     * 从数据库重建计数
+     * 查询期间发生的增量在替换后丢失，由下一次对账修正
+     */
+    @PostConstruct
+    public void rebuild() {
+        long[] counts = new long[Orders.CANCELLED + 1];
+        List<Map<String, Object>> rows = orderMapper.countGroupByStatus();
+        for (Map<String, Object> row : rows) {
+            Number status = (Number) row.get("status");
+            if (status != null && status.intValue() > 0 && status.intValue() < counts.length) {
+                counts[status.intValue()] = ((Number) row.get("count")).longValue();
+            }
+        }
+        //整体替换，读取方不会看到部分更新或清零的计数
+        counters = newCounters(counts);
+        log.info("订单状态计数已与数据库对账");
+    }
+
+    /**
+     * 定时对账
+     */
+    @Scheduled(fixedDelayString = "${sky.order.status-reconcile-interval:60000}",
+            initialDelayString = "${sky.order.status-reconcile-interval:60000}")
+    public synchronized void reconcile() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("订单状态计数对账失败", e);
+        }
+    }
+
+    /**
+     * 处理源状态未知的流转请求的对账，多次请求合并为一次
+     */
+    @Scheduled(fixedDelayString = "${sky.order.status-reconcile-delay:1000}")
+    public void reconcileIfRequested() {
+        if (rebuildRequested.getAndSet(false)) {
+            reconcile();
+        }
+    }
+
+    /**
+     * 新增订单
+     *
+     * @param status
+     */
+    public void increment(Integer status) {
+        counters[status].increment();
+    }
+
+    /**
+     * 订单状态流转
+     *
+     * @param from
+     * @param to
+     * @param count 流转的订单数量
+     */
+    public void transfer(Integer from, Integer to, long count) {
+        if (count <= 0) {
+            return;
+        }
+        LongAdder[] current = counters;
+        current[from].add(-count);
+        current[to].add(count);
+    }
+
+    /**
+     * 源状态未知的订单状态流转：先增加目标状态的计数，再请求与数据库对账修正源状态的计数
+     *
+     * @param to
+     */
+    public void transferFromUnknown(Integer to) {
+        counters[to].increment();
+        rebuildRequested.set(true);
+    }
+
+    /**
+     * 获取指定状态的订单数量
+     *
+     * @param status
+     * @return
+     */
+    public int get(Integer status) {
+        return (int) Math.max(counters[status].sum(), 0);
+    }
+
+    /**
+     * 获取全部订单数量
+     *
+     * @return
+     */
+    public int total() {
+        LongAdder[] current = counters;
+        long total = 0;
+        for (int status = 1; status < current.length; status++) {
+            total += current[status].sum();
+        }
+        return (int) Math.max(total, 0);
+    }
+
+    private static LongAdder[] newCounters(long[] counts) {
+        LongAdder[] adders = new LongAdder[counts.length];
+        for (int status = 0; status < counts.length; status++) {
+            adders[status] = new LongAdder();
+            adders[status].add(counts[status]);
+        }
+        return adders;
+    }
+}
@@ -0,0 +1,64 @@
+package com.sky.statemachine;
+
+import com.sky.entity.Orders;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 订单状态流转：目标状态 + 允许流转的源状态（按发生概率从高到低排列）
+ */
+public enum OrderTransition {
+
+    /**
+     * 接单：待接单 -> 已接单
+     */
+    CONFIRM(Orders.CONFIRMED, Orders.TO_BE_CONFIRMED),
+
+    /**
+     * 拒单：待接单 -> 已取消
+     */
+    REJECT(Orders.CANCELLED, Orders.TO_BE_CONFIRMED),
+
+    /**
+     * 商家取消：未完成的订单 -> 已取消
+     */
+    ADMIN_CANCEL(Orders.CANCELLED, Orders.TO_BE_CONFIRMED, Orders.CONFIRMED, Orders.DELIVERY_IN_PROGRESS, Orders.PENDING_PAYMENT),
+
+    /**
+     * 用户取消：待付款、待接单 -> 已取消
+     */
+    USER_CANCEL(Orders.CANCELLED, Orders.PENDING_PAYMENT, Orders.TO_BE_CONFIRMED),
+
+    /**
+     * 支付超时：待付款 -> 已取消
+     */
+    PAY_TIMEOUT(Orders.CANCELLED, Orders.PENDING_PAYMENT),
+
+    /**
+     * 派送：已接单 -> 派送中
+     */
+    DELIVER(Orders.DELIVERY_IN_PROGRESS, Orders.CONFIRMED),
+
+    /**
+     * 完成：派送中 -> 已完成
+     */
+    COMPLETE(Orders.COMPLETED, Orders.DELIVERY_IN_PROGRESS);
+
+    private final Integer to;
+    private final List<Integer> from;
+
+    OrderTransition(Integer to, Integer... from) {
+        this.to = to;
+        this.from = Collections.unmodifiableList(Arrays.asList(from));
+    }
+
+    public Integer getTo() {
+        return to;
+    }
+
+    public List<Integer> getFrom() {
+        return from;
+    }
+}
@@ -1,16 +1,26 @@
 package com.sky.task;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.sky.entity.Orders;
 import com.sky.mapper.OrderMapper;
+import com.sky.properties.OrderProperties;
+import com.sky.statemachine.OrderStateMachine;
+import com.sky.statemachine.OrderTransition;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
 import java.time.LocalDateTime;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * 自定义定时任务，实现订单状态定时处理
@@ -21,47 +31,87 @@ public class OrderTask {
 
     @Autowired
     private OrderMapper orderMapper;
+    @Autowired
+    private OrderStateMachine orderStateMachine;
+    @Autowired
+    private OrderTimeoutWheel orderTimeoutWheel;
+    @Autowired
+    private OrderProperties orderProperties;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter deliveryRowsCounter;
+    private Timer deliveryChunkTimer;
+
+    @PostConstruct
+    public void initMetrics() {
+        deliveryRowsCounter = Counter.builder("sky.order.task.rows")
+                .description("定时任务处理的订单数量")
+                .tag("task", "delivery")
+                .register(meterRegistry);
+        deliveryChunkTimer = Timer.builder("sky.order.task.chunk")
+                .description("定时任务每批订单的处理耗时")
+                .tag("task", "delivery")
+                .register(meterRegistry);
+    }
 
     /**
-     * 处理支付超时订单
+     * 支付超时订单由时间轮在到期时取消，这里每小时兜底一次，
+     * 只取消已经超过支付期限的待付款订单（如已宕机节点登记的订单、多次取消失败的订单）
      */
-    @Scheduled(cron = "0 * * * * ?")
+    @Scheduled(cron = "0 30 * * * ?")
     public void processTimeoutOrder(){
-        log.info("处理支付超时订单：{}", new Date());
-
-        // select * from orders where status = 1 and order_time < 当前时间-15分钟
-        LambdaQueryWrapper<Orders> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(Orders::getStatus, 1)
-                .lt(Orders::getOrderTime, LocalDateTime.now().minusMinutes(15));
-        List<Orders> ordersList = orderMapper.selectList(queryWrapper);
-        if(ordersList != null && !ordersList.isEmpty()){
-            ordersList.forEach(order -> {
-                order.setStatus(Orders.CANCELLED);
-                order.setCancelReason("支付超时，自动取消");
-                order.setCancelTime(LocalDateTime.now());
-                orderMapper.updateById(order);
-            });
-        }
+        log.info("兜底取消支付超时订单：{}", new Date());
+        int rows = orderTimeoutWheel.cancelOverdue();
+        log.info("兜底取消支付超时订单完成，共{}个", rows);
     }
 
     /**
      * 处理“派送中”状态的订单
+     * 按id分批只查询订单id，每批执行一条 update ... where id in (...) and status = 4，
+     * 批与批之间停顿，避免长时间持锁和主从复制延迟，也不会一次性把所有订单加载到内存；
+     * 定时任务线程池有多个线程（spring.task.scheduling.pool.size），停顿不会阻塞其他定时任务
      */
     @Scheduled(cron = "0 0 1 * * ?")
-    public void processDeliveryOrder(){
+    public void processDeliveryOrder() throws InterruptedException {
         log.info("处理派送中订单：{}", new Date());
-        // select * from orders where status = 4 and order_time < 当前时间-1小时
-        LambdaQueryWrapper<Orders> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(Orders::getStatus, 4)
-                .lt(Orders::getOrderTime, LocalDateTime.now().minusHours(1));
-        List<Orders> ordersList = orderMapper.selectList(queryWrapper);
+        LocalDateTime deadline = LocalDateTime.now().minusHours(1);
+        int batchSize = orderProperties.getBatchSize();
+        long pauseMillis = orderProperties.getBatchPause().toMillis();
+
+        long lastId = 0;
+        int total = 0;
+        while (true) {
+            // select id from orders where status = 4 and order_time < 当前时间-1小时 and id > ? order by id limit ?
+            //排序使用字符串列名，lambda列的泛型可变参数会产生unchecked警告
+            LambdaQueryWrapper<Orders> queryWrapper = new QueryWrapper<Orders>()
+                    .select("id")
+                    .orderByAsc("id")
+                    .lambda()
+                    .eq(Orders::getStatus, Orders.DELIVERY_IN_PROGRESS)
+                    .lt(Orders::getOrderTime, deadline)
+                    .gt(Orders::getId, lastId)
+                    .last("limit " + batchSize);
+            List<Long> ids = orderMapper.selectList(queryWrapper).stream()
+                    .map(Orders::getId)
+                    .collect(Collectors.toList());
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            long start = System.nanoTime();
+            int rows = orderStateMachine.fireBatch(ids, OrderTransition.COMPLETE, null);
+            deliveryChunkTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            deliveryRowsCounter.increment(rows);
+            total += rows;
 
-        if(ordersList != null && !ordersList.isEmpty()){
-            ordersList.forEach(order -> {
-                order.setStatus(Orders.COMPLETED);
-                orderMapper.updateById(order);
-            });
+            lastId = ids.get(ids.size() - 1);
+            if (ids.size() < batchSize) {
+                break;
+            }
+            Thread.sleep(pauseMillis);
         }
+        log.info("处理派送中订单完成，共{}个", total);
     }
 
-}
\ No newline at end of file
+}
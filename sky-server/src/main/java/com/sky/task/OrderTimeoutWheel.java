@@ -0,0 +1,271 @@
+package com.sky.task;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.sky.entity.Orders;
+import com.sky.mapper.OrderMapper;
+import com.sky.properties.OrderProperties;
+import com.sky.statemachine.OrderStateMachine;
+import com.sky.statemachine.OrderTransition;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 支付超时时间轮
+ * 下单时登记待付款订单，到期时批量执行条件更新取消订单，取代每分钟一次的全表扫描。
+ *
+ * 登记请求先放入无锁队列，由唯一的时间轮线程在每个刻度开始时分发到对应的槽位，
+ * 因此槽位只会被时间轮线程访问，无需加锁。订单到期时可能已被支付或取消，条件更新不会误改这些订单。
+ * 时间轮只保存在内存中，应用启动时从数据库恢复待付款订单；
+ * 其他节点（如已宕机节点）登记的订单以及多次取消失败的订单由每小时的兜底任务直接取消已超时的部分。
+ */
+@Component
+@Slf4j
+public class OrderTimeoutWheel {
+
+    private static final int WHEEL_SIZE = 512;
+
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private OrderStateMachine orderStateMachine;
+    @Autowired
+    private OrderProperties orderProperties;
+
+    //取消失败后的重试次数上限，超过后交给每小时的兜底任务处理
+    private static final int MAX_RETRIES = 5;
+    private static final long MAX_RETRY_BACKOFF_MILLIS = 60000;
+
+    private final List<List<TimeoutEntry>> wheel = new ArrayList<>(WHEEL_SIZE);
+    private final Queue<TimeoutEntry> pending = new ConcurrentLinkedQueue<>();
+    //已登记的订单id，用于恢复时去重
+    private final Set<Long> registered = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService executor;
+    private long tickMillis;
+    private long currentTick;
+
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        tickMillis = orderProperties.getTimeoutTick().toMillis();
+        currentTick = System.currentTimeMillis() / tickMillis;
+
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "order-timeout-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 应用启动后从数据库恢复待付款订单
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        recover();
+    }
+
+    /**
+     * 登记待付款订单
+     *
+     * @param orderId
+     * @param orderTime 下单时间
+     */
+    public void register(Long orderId, LocalDateTime orderTime) {
+        if (!registered.add(orderId)) {
+            return;
+        }
+        long deadline = orderTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                + orderProperties.getPayTimeout().toMillis();
+        pending.offer(new TimeoutEntry(orderId, deadline, 0));
+    }
+
+    /**
+     * 从数据库加载全部待付款订单并登记，按id分批查询，只在应用启动时执行
+     */
+    public void recover() {
+        int batchSize = orderProperties.getBatchSize();
+        long lastId = 0;
+        int total = 0;
+        while (true) {
+            // select id, order_time from orders where status = 1 and id > ? order by id limit ?
+            LambdaQueryWrapper<Orders> queryWrapper = new QueryWrapper<Orders>()
+                    .select("id", "order_time")
+                    .orderByAsc("id")
+                    .lambda()
+                    .eq(Orders::getStatus, Orders.PENDING_PAYMENT)
+                    .gt(Orders::getId, lastId)
+                    .last("limit " + batchSize);
+            List<Orders> ordersList = orderMapper.selectList(queryWrapper);
+            if (ordersList.isEmpty()) {
+                break;
+            }
+            ordersList.forEach(order -> register(order.getId(), order.getOrderTime()));
+            total += ordersList.size();
+            lastId = ordersList.get(ordersList.size() - 1).getId();
+            if (ordersList.size() < batchSize) {
+                break;
+            }
+        }
+        log.info("支付超时时间轮恢复待付款订单：{}个", total);
+    }
+
+    /**
+     * 直接取消已经超过支付期限的待付款订单，按id分批查询
+     *
+     * @return 取消的订单数量
+     */
+    public int cancelOverdue() {
+        LocalDateTime overdueBefore = LocalDateTime.now().minus(orderProperties.getPayTimeout());
+        int batchSize = orderProperties.getBatchSize();
+        long lastId = 0;
+        int total = 0;
+        while (true) {
+            // select id from orders where status = 1 and order_time < 当前时间-支付期限 and id > ? order by id limit ?
+            LambdaQueryWrapper<Orders> queryWrapper = new QueryWrapper<Orders>()
+                    .select("id")
+                    .orderByAsc("id")
+                    .lambda()
+                    .eq(Orders::getStatus, Orders.PENDING_PAYMENT)
+                    .lt(Orders::getOrderTime, overdueBefore)
+                    .gt(Orders::getId, lastId)
+                    .last("limit " + batchSize);
+            List<Long> ids = orderMapper.selectList(queryWrapper).stream()
+                    .map(Orders::getId)
+                    .collect(Collectors.toList());
+            if (ids.isEmpty()) {
+                break;
+            }
+            total += fireTimeout(ids);
+            registered.removeAll(ids);
+            lastId = ids.get(ids.size() - 1);
+            if (ids.size() < batchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 时间轮线程：按当前时间推进刻度，分发新登记的订单，取消经过的槽位中已到期的订单
+     */
+    private void tick() {
+        try {
+            long nowTick = System.currentTimeMillis() / tickMillis;
+            List<TimeoutEntry> expired = new ArrayList<>();
+
+            TimeoutEntry entry;
+            while ((entry = pending.poll()) != null) {
+                if (entry.deadlineTick <= nowTick) {
+                    expired.add(entry);
+                } else {
+                    wheel.get((int) (entry.deadlineTick % WHEEL_SIZE)).add(entry);
+                }
+            }
+
+            //线程被延迟调度时一次推进多个刻度，最多转一圈
+            long fromTick = Math.max(currentTick, nowTick - WHEEL_SIZE);
+            for (long tick = fromTick + 1; tick <= nowTick; tick++) {
+                Iterator<TimeoutEntry> iterator = wheel.get((int) (tick % WHEEL_SIZE)).iterator();
+                while (iterator.hasNext()) {
+                    entry = iterator.next();
+                    if (entry.deadlineTick <= nowTick) {
+                        expired.add(entry);
+                        iterator.remove();
+                    }
+                }
+            }
+            currentTick = nowTick;
+
+            if (!expired.isEmpty()) {
+                cancel(expired);
+            }
+        } catch (Exception e) {
+            log.error("支付超时时间轮处理失败", e);
+        }
+    }
+
+    /**
+     * 分批取消到期订单，失败的批次按指数退避重试，超过重试次数后交给兜底任务
+     *
+     * @param entries
+     */
+    private void cancel(List<TimeoutEntry> entries) {
+        int batchSize = orderProperties.getBatchSize();
+        for (int i = 0; i < entries.size(); i += batchSize) {
+            List<TimeoutEntry> batch = entries.subList(i, Math.min(i + batchSize, entries.size()));
+            List<Long> orderIds = batch.stream().map(entry -> entry.orderId).collect(Collectors.toList());
+            try {
+                int rows = fireTimeout(orderIds);
+                registered.removeAll(orderIds);
+                log.info("处理支付超时订单：到期{}个，取消{}个", orderIds.size(), rows);
+            } catch (Exception e) {
+                log.error("取消支付超时订单失败：{}", orderIds, e);
+                retry(batch);
+            }
+        }
+    }
+
+    private void retry(List<TimeoutEntry> batch) {
+        long now = System.currentTimeMillis();
+        for (TimeoutEntry entry : batch) {
+            int retries = entry.retries + 1;
+            if (retries > MAX_RETRIES) {
+                //不再重试，每小时的兜底任务会取消该订单
+                registered.remove(entry.orderId);
+                log.warn("取消支付超时订单多次失败，交给兜底任务处理：{}", entry.orderId);
+                continue;
+            }
+            long backoff = Math.min(tickMillis << retries, MAX_RETRY_BACKOFF_MILLIS);
+            pending.offer(new TimeoutEntry(entry.orderId, now + backoff, retries));
+        }
+    }
+
+    private int fireTimeout(List<Long> orderIds) {
+        return orderStateMachine.fireBatch(orderIds, OrderTransition.PAY_TIMEOUT, wrapper -> wrapper
+                .set(Orders::getCancelReason, "支付超时，自动取消")
+                .set(Orders::getCancelTime, LocalDateTime.now()));
+    }
+
+    private class TimeoutEntry {
+        private final Long orderId;
+        private final long deadlineTick;
+        //已重试次数
+        private final int retries;
+
+        TimeoutEntry(Long orderId, long deadline, int retries) {
+            this.orderId = orderId;
+            //向上取整，保证不会提前取消
+            this.deadlineTick = (deadline + tickMillis - 1) / tickMillis;
+            this.retries = retries;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.sky.websocket;
+
+import com.alibaba.fastjson.JSON;
+import com.sky.properties.WebSocketProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 来单提醒和催单通知的合并
+ * 同一主题在一个时间窗口内的通知合并后发送，每帧只序列化一次后发给所有订阅者；
+ * 窗口内同一订单的同类通知只保留最后一条。
+ * 订阅原主题的客户端按原格式逐条收到单个对象；
+ * 订阅合并主题（WebSocketTopics.batch）的客户端每个窗口收到一帧 {"type":"batch","items":[...]}。
+ */
+@Component
+@Slf4j
+public class NotificationAggregator implements DisposableBean {
+
+    private static final String BATCH_TYPE = "batch";
+
+    @Autowired
+    private WebSocketServer webSocketServer;
+    @Autowired
+    private WebSocketProperties webSocketProperties;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    //主题 -> 当前窗口内待发送的通知
+    private final ConcurrentMap<String, PendingFrame> pendingFrames = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ws-notification-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Counter submittedCounter;
+    private Counter framesCounter;
+
+    /**
+     * 一个窗口内待发送的通知，key为通知类型和订单id
+     */
+    private static class PendingFrame {
+        private final Map<String, Map<String, Object>> notifications = new LinkedHashMap<>();
+        private boolean flushed;
+    }
+
+    @PostConstruct
+    public void init() {
+        submittedCounter = Counter.builder("sky.notification.submitted").register(meterRegistry);
+        framesCounter = Counter.builder("sky.notification.frames").register(meterRegistry);
+    }
+
+    /**
+     * 提交通知，在窗口结束时与同一主题的其他通知一起发送
+     *
+     * @param topic
+     * @param notification 包含type、orderId、content
+     */
+    public void submit(String topic, Map<String, Object> notification) {
+        submittedCounter.increment();
+        String dedupKey = notification.get("type") + ":" + notification.get("orderId");
+        while (true) {
+            PendingFrame frame = pendingFrames.computeIfAbsent(topic, t -> {
+                flushExecutor.schedule(() -> flush(t), webSocketProperties.getNotificationWindow().toMillis(),
+                        TimeUnit.MILLISECONDS);
+                return new PendingFrame();
+            });
+            synchronized (frame) {
+                //窗口已经结束，放入下一个窗口
+                if (frame.flushed) {
+                    continue;
+                }
+                frame.notifications.remove(dedupKey);
+                frame.notifications.put(dedupKey, notification);
+                return;
+            }
+        }
+    }
+
+    private void flush(String topic) {
+        PendingFrame frame = pendingFrames.remove(topic);
+        if (frame == null) {
+            return;
+        }
+        List<Map<String, Object>> notifications;
+        synchronized (frame) {
+            frame.flushed = true;
+            notifications = new ArrayList<>(frame.notifications.values());
+        }
+        if (notifications.isEmpty()) {
+            return;
+        }
+
+        for (Map<String, Object> notification : notifications) {
+            send(topic, JSON.toJSONString(notification));
+        }
+        Map<String, Object> batch = new LinkedHashMap<>();
+        batch.put("type", BATCH_TYPE);
+        batch.put("items", notifications);
+        send(WebSocketTopics.batch(topic), JSON.toJSONString(batch));
+    }
+
+    private void send(String topic, String payload) {
+        framesCounter.increment();
+        try {
+            webSocketServer.sendToTopic(topic, payload);
+        } catch (Exception e) {
+            log.error("发送通知失败，主题：{}", topic, e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        flushExecutor.shutdownNow();
+        //停机前发出窗口内尚未发送的通知
+        new ArrayList<>(pendingFrames.keySet()).forEach(this::flush);
+    }
+}
@@ -0,0 +1,116 @@
+package com.sky.websocket;
+
+import lombok.Getter;
+
+import javax.websocket.Session;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 带有界发送队列的WebSocket会话
+ * 同一时刻最多只有一个线程在发送该会话的消息，保证消息顺序且不会并发调用同一个会话的发送方法。
+ */
+public class OutboundSession {
+
+    @Getter
+    private final String sid;
+    @Getter
+    private final Session session;
+    private final BlockingQueue<String> queue;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicInteger consecutiveDrops = new AtomicInteger();
+    //会话订阅的主题
+    @Getter
+    private final Set<String> topics = ConcurrentHashMap.newKeySet();
+    @Getter
+    private volatile boolean closed;
+    //最后一次收到客户端消息或pong的时间
+    @Getter
+    private volatile long lastActive = System.currentTimeMillis();
+    //等待发送的ping，与消息由同一个发送线程发出
+    private final AtomicBoolean pingPending = new AtomicBoolean();
+
+    public OutboundSession(String sid, Session session, int queueCapacity) {
+        this.sid = sid;
+        this.session = session;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * 消息加入发送队列
+     *
+     * @param message
+     * @return 队列已满时返回false
+     */
+    public boolean offer(String message) {
+        if (queue.offer(message)) {
+            consecutiveDrops.set(0);
+            return true;
+        }
+        consecutiveDrops.incrementAndGet();
+        return false;
+    }
+
+    public String poll() {
+        return queue.poll();
+    }
+
+    public int depth() {
+        return queue.size();
+    }
+
+    /**
+     * 是否有待发送的消息或ping
+     *
+     * @return
+     */
+    public boolean hasPending() {
+        return pingPending.get() || !queue.isEmpty();
+    }
+
+    public void touch() {
+        lastActive = System.currentTimeMillis();
+    }
+
+    public void requestPing() {
+        pingPending.set(true);
+    }
+
+    /**
+     * 取出待发送的ping
+     *
+     * @return 有待发送的ping时返回true
+     */
+    public boolean takePing() {
+        return pingPending.compareAndSet(true, false);
+    }
+
+    public int getConsecutiveDrops() {
+        return consecutiveDrops.get();
+    }
+
+    /**
+     * 尝试成为发送线程
+     *
+     * @return 已有线程在发送时返回false
+     */
+    public boolean startDrain() {
+        return draining.compareAndSet(false, true);
+    }
+
+    public void finishDrain() {
+        draining.set(false);
+    }
+
+    /**
+     * 标记会话已移除并清空发送队列
+     */
+    public void close() {
+        closed = true;
+        queue.clear();
+    }
+}
@@ -0,0 +1,65 @@
+package com.sky.websocket;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.sky.entity.Orders;
+import com.sky.mapper.OrderMapper;
+import com.sky.properties.WebSocketProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * WebSocket主题的订阅权限
+ * 管理端可以订阅所有主题；用户只能订阅店铺主题和自己订单的主题；
+ * 未携带票据的旧版管理端页面在允许时只能订阅管理端主题。
+ */
+@Component
+public class WebSocketAuthorizer {
+
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private WebSocketProperties webSocketProperties;
+
+    /**
+     * 是否允许未携带票据的连接，兼容尚未升级的管理端页面
+     *
+     * @return
+     */
+    public boolean allowAnonymous() {
+        return webSocketProperties.isAllowAnonymousAdmin();
+    }
+
+    /**
+     * 是否可以订阅主题
+     *
+     * @param principal
+     * @param topic
+     * @return
+     */
+    public boolean canSubscribe(WebSocketPrincipal principal, String topic) {
+        String target = WebSocketTopics.unbatch(topic);
+        switch (principal.getRole()) {
+            case ADMIN:
+                return WebSocketTopics.ADMIN.equals(target)
+                        || WebSocketTopics.KITCHEN.equals(target)
+                        || WebSocketTopics.parseId(target, WebSocketTopics.SHOP_PREFIX) != null
+                        || WebSocketTopics.parseId(target, WebSocketTopics.ORDER_PREFIX) != null;
+            case USER:
+                if (WebSocketTopics.parseId(target, WebSocketTopics.SHOP_PREFIX) != null) {
+                    return true;
+                }
+                Long orderId = WebSocketTopics.parseId(target, WebSocketTopics.ORDER_PREFIX);
+                return orderId != null && isOwner(principal.getId(), orderId);
+            case ANONYMOUS:
+                return allowAnonymous() && WebSocketTopics.ADMIN.equals(target);
+            default:
+                return false;
+        }
+    }
+
+    private boolean isOwner(Long userId, Long orderId) {
+        return orderMapper.selectCount(new LambdaQueryWrapper<Orders>()
+                .eq(Orders::getId, orderId)
+                .eq(Orders::getUserId, userId)) > 0;
+    }
+}
@@ -0,0 +1,359 @@
+package com.sky.websocket;
+
+import com.sky.properties.WebSocketProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.websocket.CloseReason;
+import javax.websocket.Session;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * WebSocket消息广播
+ * 调用方只把消息交给分发线程，分发线程把消息放入每个会话的有界队列，由发送线程池异步发送。
+ * 会话队列满时丢弃消息，连续丢弃过多的慢消费者会被断开，一个慢客户端不会拖慢调用方和其他客户端。
+ * 按主题发布时通过路由表只查找订阅了该主题的会话，分发开销与订阅者数量成正比。
+ * 定期向会话发送ping，超过空闲时间没有收到pong或消息的会话被断开，半开连接不会一直占用内存和发送时间。
+ */
+@Component
+@Slf4j
+public class WebSocketBroadcaster implements DisposableBean {
+
+    @Autowired
+    private WebSocketProperties webSocketProperties;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private static final ByteBuffer PING = ByteBuffer.allocate(0);
+
+    private final ConcurrentMap<String, OutboundSession> sessions = new ConcurrentHashMap<>();
+    //主题 -> 订阅该主题的会话
+    private final ConcurrentMap<String, Set<OutboundSession>> routes = new ConcurrentHashMap<>();
+    //已占用的连接数，注册前先占用，会话移除后释放
+    private final AtomicInteger connections = new AtomicInteger();
+
+    //单线程分发，保证广播消息的顺序
+    private ThreadPoolExecutor dispatchExecutor;
+    //每个会话同一时刻最多有一个发送任务，队列长度不超过会话数
+    private ThreadPoolExecutor sendExecutor;
+
+    private Timer sendTimer;
+    private Counter droppedCounter;
+    private Counter evictedCounter;
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        dispatchExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(webSocketProperties.getDispatchQueueCapacity()),
+                daemonThreadFactory("ws-dispatch-"), new ThreadPoolExecutor.AbortPolicy());
+        int sendThreads = webSocketProperties.getSendThreads();
+        sendExecutor = new ThreadPoolExecutor(sendThreads, sendThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), daemonThreadFactory("ws-send-"));
+
+        sendTimer = Timer.builder("sky.websocket.send.latency").register(meterRegistry);
+        droppedCounter = Counter.builder("sky.websocket.dropped").register(meterRegistry);
+        evictedCounter = Counter.builder("sky.websocket.evicted").register(meterRegistry);
+        rejectedCounter = Counter.builder("sky.websocket.rejected").register(meterRegistry);
+        Gauge.builder("sky.websocket.sessions", sessions, Map::size).register(meterRegistry);
+        Gauge.builder("sky.websocket.queue.depth", sessions,
+                        s -> s.values().stream().mapToInt(OutboundSession::depth).sum())
+                .register(meterRegistry);
+        Gauge.builder("sky.websocket.topics", routes, Map::size).register(meterRegistry);
+        Gauge.builder("sky.websocket.dispatch.depth", dispatchExecutor, e -> e.getQueue().size())
+                .register(meterRegistry);
+    }
+
+    /**
+     * 注册会话，相同sid的旧会话被替换并以GOING_AWAY关闭
+     *
+     * @param sid
+     * @param session
+     * @param topics 订阅的主题
+     * @return 本节点连接数已达上限时返回false，由调用方关闭连接
+     */
+    public boolean register(String sid, Session session, Collection<String> topics) {
+        if (!reserveConnection()) {
+            if (!sessions.containsKey(sid)) {
+                rejectedCounter.increment();
+                return false;
+            }
+            //替换相同sid的旧会话时允许暂时超出上限，旧会话移除后释放其占用的连接数
+            connections.incrementAndGet();
+        }
+        OutboundSession outbound = new OutboundSession(sid, session, webSocketProperties.getSessionQueueCapacity());
+        OutboundSession old = sessions.put(sid, outbound);
+        if (old != null) {
+            detach(old);
+            log.info("WebSocket客户端：{}重新连接，关闭旧会话", sid);
+            closeSession(old, CloseReason.CloseCodes.GOING_AWAY, "replaced");
+        }
+        topics.forEach(topic -> subscribe(outbound, topic));
+        return true;
+    }
+
+    /**
+     * 注销会话，只有会话仍是当前注册的会话时才移除
+     *
+     * @param sid
+     * @param session
+     */
+    public void unregister(String sid, Session session) {
+        OutboundSession outbound = sessions.get(sid);
+        if (outbound != null && outbound.getSession() == session && sessions.remove(sid, outbound)) {
+            detach(outbound);
+        }
+    }
+
+    /**
+     * 会话订阅主题
+     *
+     * @param sid
+     * @param topic
+     * @return 会话不存在或订阅数量已达上限时返回false
+     */
+    public boolean subscribe(String sid, String topic) {
+        OutboundSession outbound = sessions.get(sid);
+        return outbound != null && subscribe(outbound, topic);
+    }
+
+    /**
+     * 会话取消订阅主题
+     *
+     * @param sid
+     * @param topic
+     */
+    public void unsubscribe(String sid, String topic) {
+        OutboundSession outbound = sessions.get(sid);
+        if (outbound != null && outbound.getTopics().remove(topic)) {
+            removeRoute(topic, outbound);
+        }
+    }
+
+    /**
+     * 群发，只把消息交给分发线程，不随连接数增加耗时
+     *
+     * @param message
+     */
+    public void broadcast(String message) {
+        dispatch(() -> sessions.values().forEach(outbound -> deliver(outbound, message)));
+    }
+
+    /**
+     * 向订阅了主题的会话发送消息
+     *
+     * @param topic
+     * @param message
+     */
+    public void publish(String topic, String message) {
+        dispatch(() -> {
+            Set<OutboundSession> subscribers = routes.get(topic);
+            if (subscribers != null) {
+                subscribers.forEach(outbound -> deliver(outbound, message));
+            }
+        });
+    }
+
+    /**
+     * 收到客户端的消息或pong
+     *
+     * @param sid
+     */
+    public void touch(String sid) {
+        OutboundSession outbound = sessions.get(sid);
+        if (outbound != null) {
+            outbound.touch();
+        }
+    }
+
+    /**
+     * 定期发送心跳，断开超过空闲时间的会话
+     */
+    @Scheduled(fixedDelayString = "${sky.websocket.ping-interval:30000}",
+            initialDelayString = "${sky.websocket.ping-interval:30000}")
+    public void heartbeat() {
+        long idleBefore = System.currentTimeMillis() - webSocketProperties.getIdleTimeout().toMillis();
+        for (OutboundSession outbound : sessions.values()) {
+            if (outbound.getLastActive() < idleBefore) {
+                evict(outbound, CloseReason.CloseCodes.GOING_AWAY, "idle timeout");
+            } else {
+                outbound.requestPing();
+                scheduleDrain(outbound);
+            }
+        }
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * 占用一个连接数，已达上限时返回false
+     */
+    private boolean reserveConnection() {
+        int max = webSocketProperties.getMaxConnections();
+        while (true) {
+            int current = connections.get();
+            if (current >= max) {
+                return false;
+            }
+            if (connections.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void dispatch(Runnable task) {
+        try {
+            dispatchExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            droppedCounter.increment();
+            log.warn("WebSocket分发队列已满，丢弃消息");
+        }
+    }
+
+    private boolean subscribe(OutboundSession outbound, String topic) {
+        if (outbound.getTopics().size() >= webSocketProperties.getMaxTopicsPerSession()) {
+            return false;
+        }
+        outbound.getTopics().add(topic);
+        routes.computeIfAbsent(topic, t -> ConcurrentHashMap.newKeySet()).add(outbound);
+        //订阅的同时会话被移除，撤销本次订阅
+        if (outbound.isClosed()) {
+            removeRoute(topic, outbound);
+        }
+        return true;
+    }
+
+    /**
+     * 会话移除后清空发送队列、从路由表中删除并释放连接数
+     * 每个会话只会从sessions中移除一次，因此只会执行一次
+     */
+    private void detach(OutboundSession outbound) {
+        connections.decrementAndGet();
+        outbound.close();
+        outbound.getTopics().forEach(topic -> removeRoute(topic, outbound));
+    }
+
+    private void removeRoute(String topic, OutboundSession outbound) {
+        //没有订阅者的主题从路由表中删除
+        routes.computeIfPresent(topic, (t, subscribers) -> {
+            subscribers.remove(outbound);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    private void deliver(OutboundSession outbound, String message) {
+        if (outbound.isClosed()) {
+            return;
+        }
+        if (outbound.offer(message)) {
+            scheduleDrain(outbound);
+            return;
+        }
+        droppedCounter.increment();
+        if (outbound.getConsecutiveDrops() >= webSocketProperties.getMaxConsecutiveDrops()) {
+            evict(outbound, CloseReason.CloseCodes.TRY_AGAIN_LATER, "slow consumer");
+        }
+    }
+
+    private void scheduleDrain(OutboundSession outbound) {
+        if (outbound.startDrain()) {
+            sendExecutor.execute(() -> drain(outbound));
+        }
+    }
+
+    private void drain(OutboundSession outbound) {
+        try {
+            if (outbound.takePing()) {
+                try {
+                    outbound.getSession().getBasicRemote().sendPing(PING);
+                } catch (Exception e) {
+                    evict(outbound, CloseReason.CloseCodes.GOING_AWAY, "ping failed");
+                    return;
+                }
+            }
+            String message;
+            while ((message = outbound.poll()) != null) {
+                long start = System.nanoTime();
+                try {
+                    //服务器向客户端发送消息
+                    outbound.getSession().getBasicRemote().sendText(message);
+                } catch (Exception e) {
+                    log.warn("向客户端{}发送消息失败：{}", outbound.getSid(), e.getMessage());
+                    evict(outbound, CloseReason.CloseCodes.GOING_AWAY, "send failed");
+                    return;
+                } finally {
+                    sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            }
+        } finally {
+            outbound.finishDrain();
+        }
+        //finishDrain之前新加入的消息可能没有触发发送
+        if (!outbound.isClosed() && outbound.hasPending()) {
+            scheduleDrain(outbound);
+        }
+    }
+
+    /**
+     * 断开会话
+     */
+    private void evict(OutboundSession outbound, CloseReason.CloseCode closeCode, String reason) {
+        if (!sessions.remove(outbound.getSid(), outbound)) {
+            return;
+        }
+        detach(outbound);
+        evictedCounter.increment();
+        log.warn("断开WebSocket客户端：{}，原因：{}", outbound.getSid(), reason);
+        closeSession(outbound, closeCode, reason);
+    }
+
+    /**
+     * 关闭连接，在发送线程池中执行
+     */
+    private void closeSession(OutboundSession outbound, CloseReason.CloseCode closeCode, String reason) {
+        sendExecutor.execute(() -> {
+            try {
+                outbound.getSession().close(new CloseReason(closeCode, reason));
+            } catch (Exception e) {
+                log.debug("关闭WebSocket会话失败", e);
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        dispatchExecutor.shutdownNow();
+        sendExecutor.shutdownNow();
+    }
+
+    private static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,23 @@
+package com.sky.websocket;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 跨节点WebSocket消息
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WebSocketEvent {
+
+    //发布消息的节点
+    private String nodeId;
+    //消息id，用于去重
+    private String msgId;
+    //主题，为null时发给所有会话
+    private String topic;
+    //发送给客户端的消息
+    private String payload;
+}
@@ -0,0 +1,82 @@
+package com.sky.websocket;
+
+import com.alibaba.fastjson.JSON;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 订单和店铺事件的WebSocket推送
+ * 在事务中调用时推迟到事务提交之后发送，回滚的变更不会推送给客户端。
+ */
+@Component
+@Slf4j
+public class WebSocketEventPublisher {
+
+    //3代表订单状态变更
+    public static final int ORDER_STATUS_CHANGED = 3;
+    //4代表店铺营业状态变更
+    public static final int SHOP_STATUS_CHANGED = 4;
+
+    @Autowired
+    private WebSocketServer webSocketServer;
+
+    /**
+     * 订单状态变更，发送给订阅了该订单的客户端和后厨屏幕
+     *
+     * @param orderId
+     * @param status 变更后的状态
+     */
+    public void orderStatusChanged(Long orderId, Integer status) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("type", ORDER_STATUS_CHANGED);
+        map.put("orderId", orderId);
+        map.put("status", status);
+        String payload = JSON.toJSONString(map);
+        afterCommit(() -> {
+            send(WebSocketTopics.order(orderId), payload);
+            send(WebSocketTopics.KITCHEN, payload);
+        });
+    }
+
+    /**
+     * 店铺营业状态变更，发送给订阅了该店铺的客户端
+     *
+     * @param shopId
+     * @param status
+     */
+    public void shopStatusChanged(Long shopId, Integer status) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("type", SHOP_STATUS_CHANGED);
+        map.put("shopId", shopId);
+        map.put("status", status);
+        String payload = JSON.toJSONString(map);
+        afterCommit(() -> send(WebSocketTopics.shop(shopId), payload));
+    }
+
+    private void afterCommit(Runnable task) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            task.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                task.run();
+            }
+        });
+    }
+
+    private void send(String topic, String payload) {
+        try {
+            webSocketServer.sendToTopic(topic, payload);
+        } catch (Exception e) {
+            log.error("发送WebSocket事件失败，主题：{}", topic, e);
+        }
+    }
+}
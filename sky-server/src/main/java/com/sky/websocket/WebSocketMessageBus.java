@@ -0,0 +1,161 @@
+package com.sky.websocket;
+
+import com.alibaba.fastjson.JSON;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sky.properties.WebSocketProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 跨节点WebSocket消息总线
+ * 消息先发给本节点的会话，再通过Redis发布订阅发给其他节点，其他节点收到后发给各自的会话。
+ * 一个批次窗口内发布的消息合并成一条Redis消息；接收时忽略本节点发布的消息，并按消息id去重。
+ */
+@Component
+@Slf4j
+public class WebSocketMessageBus implements MessageListener, DisposableBean {
+
+    private static final int MAX_BATCH_SIZE = 100;
+
+    @Autowired
+    private WebSocketBroadcaster broadcaster;
+    @Autowired
+    private WebSocketProperties webSocketProperties;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final AtomicLong sequence = new AtomicLong();
+    //最近收到的消息id
+    private final Cache<String, Boolean> receivedIds = Caffeine.newBuilder()
+            .maximumSize(100000)
+            .expireAfterWrite(1, TimeUnit.MINUTES)
+            .build();
+
+    private final Queue<WebSocketEvent> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ws-bus-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(webSocketProperties.getBusChannel()));
+    }
+
+    /**
+     * 向所有节点上订阅了主题的会话发送消息
+     *
+     * @param topic 为null时发给所有会话
+     * @param payload
+     */
+    public void publish(String topic, String payload) {
+        deliverLocal(topic, payload);
+        pending.add(new WebSocketEvent(nodeId, nodeId + ":" + sequence.incrementAndGet(), topic, payload));
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                flushExecutor.schedule(this::flush, webSocketProperties.getBusBatchWindow().toMillis(), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                //停机后直接发出
+                flush();
+            }
+        }
+    }
+
+    /**
+     * 发出待发布的消息，停机时可能与发送线程同时调用，加锁保证每条消息只发一次且批次顺序不乱
+     */
+    private synchronized void flush() {
+        flushScheduled.set(false);
+        List<WebSocketEvent> batch = new ArrayList<>();
+        WebSocketEvent event;
+        while ((event = pending.poll()) != null) {
+            batch.add(event);
+            if (batch.size() == MAX_BATCH_SIZE) {
+                send(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    private void send(List<WebSocketEvent> batch) {
+        try {
+            stringRedisTemplate.convertAndSend(webSocketProperties.getBusChannel(), JSON.toJSONString(batch));
+        } catch (Exception e) {
+            //本节点的会话已经收到，其他节点丢失本批消息
+            log.error("发布WebSocket消息失败，丢失{}条消息", batch.size(), e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        List<WebSocketEvent> batch;
+        try {
+            batch = JSON.parseArray(body, WebSocketEvent.class);
+        } catch (Exception e) {
+            log.error("解析WebSocket跨节点消息失败，丢弃该消息：{}", body, e);
+            return;
+        }
+        if (batch == null) {
+            return;
+        }
+        for (WebSocketEvent event : batch) {
+            //本节点发布的消息已经发给本节点的会话
+            if (nodeId.equals(event.getNodeId())) {
+                continue;
+            }
+            if (receivedIds.asMap().putIfAbsent(event.getMsgId(), Boolean.TRUE) != null) {
+                continue;
+            }
+            deliverLocal(event.getTopic(), event.getPayload());
+        }
+    }
+
+    private void deliverLocal(String topic, String payload) {
+        if (topic == null) {
+            broadcaster.broadcast(payload);
+        } else {
+            broadcaster.publish(topic, payload);
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        //等待已安排的发送完成，再发出剩余的消息
+        flushExecutor.shutdown();
+        if (!flushExecutor.awaitTermination(webSocketProperties.getBusBatchWindow().toMillis() + 1000, TimeUnit.MILLISECONDS)) {
+            log.warn("等待WebSocket消息发送线程结束超时");
+        }
+        flush();
+    }
+}
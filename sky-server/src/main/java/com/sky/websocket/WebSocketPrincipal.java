@@ -0,0 +1,29 @@
+package com.sky.websocket;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * WebSocket连接的身份，建立连接时由票据确定
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class WebSocketPrincipal {
+
+    public enum Role {
+        //管理端员工
+        ADMIN,
+        //微信用户
+        USER,
+        //未携带票据的旧版管理端页面，只能订阅管理端主题
+        ANONYMOUS
+    }
+
+    public static final WebSocketPrincipal ANONYMOUS = new WebSocketPrincipal(Role.ANONYMOUS, null);
+
+    private final Role role;
+    //员工id或用户id
+    private final Long id;
+}
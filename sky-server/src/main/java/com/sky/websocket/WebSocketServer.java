@@ -1,33 +1,99 @@
 package com.sky.websocket;
 
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import javax.websocket.CloseReason;
 import javax.websocket.OnClose;
+import javax.websocket.OnError;
 import javax.websocket.OnMessage;
 import javax.websocket.OnOpen;
+import javax.websocket.PongMessage;
 import javax.websocket.Session;
 import javax.websocket.server.PathParam;
 import javax.websocket.server.ServerEndpoint;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * WebSocket服务
+ * 每个连接由容器创建一个端点实例，会话统一由WebSocketBroadcaster管理和发送。
+ * 连接时通过ticket参数传递一次性票据（/admin/ws/ticket、/user/ws/ticket换取），票据无效时拒绝连接；
+ * 未携带票据的旧版管理端页面在允许时只能订阅管理端主题。
+ * 连接时通过topics参数订阅主题（逗号分隔），连接后可以发送
+ * {"action":"subscribe","topic":"order:1"} 或 {"action":"unsubscribe","topic":"order:1"} 修改订阅，
+ * 订阅权限由WebSocketAuthorizer判断。
  */
 @Component
 @ServerEndpoint("/ws/{sid}")
+@Slf4j
 public class WebSocketServer {
 
-    //存放会话对象
-    private static Map<String, Session> sessionMap = new HashMap();
+    private static final String SUBSCRIBE = "subscribe";
+    private static final String UNSUBSCRIBE = "unsubscribe";
+    private static final String TICKET = "ticket";
+    //会话属性中保存连接的身份
+    private static final String PRINCIPAL_ATTRIBUTE = "principal";
+
+    //端点实例不是Spring管理的bean，通过静态字段共享
+    private static WebSocketBroadcaster broadcaster;
+    private static WebSocketMessageBus messageBus;
+    private static WebSocketTicketService ticketService;
+    private static WebSocketAuthorizer authorizer;
+
+    @Autowired
+    public void setBroadcaster(WebSocketBroadcaster broadcaster) {
+        WebSocketServer.broadcaster = broadcaster;
+    }
+
+    @Autowired
+    public void setMessageBus(WebSocketMessageBus messageBus) {
+        WebSocketServer.messageBus = messageBus;
+    }
+
+    @Autowired
+    public void setTicketService(WebSocketTicketService ticketService) {
+        WebSocketServer.ticketService = ticketService;
+    }
+
+    @Autowired
+    public void setAuthorizer(WebSocketAuthorizer authorizer) {
+        WebSocketServer.authorizer = authorizer;
+    }
 
     /**
      * 连接建立成功调用的方法
      */
     @OnOpen
     public void onOpen(Session session, @PathParam("sid") String sid) {
-        System.out.println("客户端：" + sid + "建立连接");
-        sessionMap.put(sid, session);
+        WebSocketPrincipal principal = authenticate(session);
+        if (principal == null) {
+            log.warn("票据无效，拒绝客户端：{}", sid);
+            close(session, CloseReason.CloseCodes.VIOLATED_POLICY, "unauthorized");
+            return;
+        }
+        if (principal.getRole() == WebSocketPrincipal.Role.ANONYMOUS) {
+            log.warn("客户端：{}未携带票据，按旧版管理端页面处理", sid);
+        }
+        session.getUserProperties().put(PRINCIPAL_ATTRIBUTE, principal);
+
+        List<String> topics = parseTopics(session.getRequestParameterMap().get("topics"), principal);
+        for (String topic : topics) {
+            if (!authorizer.canSubscribe(principal, topic)) {
+                log.warn("客户端：{}无权订阅主题：{}", sid, topic);
+                close(session, CloseReason.CloseCodes.VIOLATED_POLICY, "forbidden topic");
+                return;
+            }
+        }
+        if (!broadcaster.register(key(session, sid), session, topics)) {
+            log.warn("连接数已达上限，拒绝客户端：{}", sid);
+            close(session, CloseReason.CloseCodes.TRY_AGAIN_LATER, "too many connections");
+            return;
+        }
+        log.info("客户端：{}建立连接，身份：{}，订阅主题：{}", sid, principal, topics);
     }
 
     /**
@@ -36,8 +102,38 @@ public class WebSocketServer {
      * @param message 客户端发送过来的消息
      */
     @OnMessage
-    public void onMessage(String message, @PathParam("sid") String sid) {
-        System.out.println("收到来自客户端：" + sid + "的信息:" + message);
+    public void onMessage(String message, Session session, @PathParam("sid") String sid) {
+        log.info("收到来自客户端：{}的信息:{}", sid, message);
+        String key = key(session, sid);
+        broadcaster.touch(key);
+        JSONObject command;
+        try {
+            command = JSON.parseObject(message);
+        } catch (Exception e) {
+            return;
+        }
+        if (command == null || command.getString("topic") == null) {
+            return;
+        }
+        String topic = command.getString("topic");
+        if (SUBSCRIBE.equals(command.getString("action"))) {
+            Object principal = session.getUserProperties().get(PRINCIPAL_ATTRIBUTE);
+            if (!(principal instanceof WebSocketPrincipal) || !authorizer.canSubscribe((WebSocketPrincipal) principal, topic)) {
+                log.warn("客户端：{}无权订阅主题：{}", sid, topic);
+                return;
+            }
+            broadcaster.subscribe(key, topic);
+        } else if (UNSUBSCRIBE.equals(command.getString("action"))) {
+            broadcaster.unsubscribe(key, topic);
+        }
+    }
+
+    /**
+     * 收到客户端对心跳的响应
+     */
+    @OnMessage
+    public void onPong(PongMessage pong, Session session, @PathParam("sid") String sid) {
+        broadcaster.touch(key(session, sid));
     }
 
     /**
@@ -46,26 +142,90 @@ public class WebSocketServer {
      * @param sid
      */
     @OnClose
-    public void onClose(@PathParam("sid") String sid) {
-        System.out.println("连接断开:" + sid);
-        sessionMap.remove(sid);
+    public void onClose(Session session, @PathParam("sid") String sid) {
+        log.info("连接断开:{}", sid);
+        broadcaster.unregister(key(session, sid), session);
     }
 
     /**
-     * 群发
+     * 连接出错调用的方法
+     */
+    @OnError
+    public void onError(Session session, Throwable error, @PathParam("sid") String sid) {
+        log.warn("连接出错:{}，{}", sid, error.getMessage());
+        broadcaster.unregister(key(session, sid), session);
+    }
+
+    /**
+     * 群发，包括连接在其他节点上的客户端，消息放入每个会话的发送队列后立即返回
      *
      * @param message
      */
     public void sendToAllClient(String message) {
-        Collection<Session> sessions = sessionMap.values();
-        for (Session session : sessions) {
-            try {
-                //服务器向客户端发送消息
-                session.getBasicRemote().sendText(message);
-            } catch (Exception e) {
-                e.printStackTrace();
+        messageBus.publish(null, message);
+    }
+
+    /**
+     * 向所有节点上订阅了主题的客户端发送消息
+     *
+     * @param topic
+     * @param message
+     */
+    public void sendToTopic(String topic, String message) {
+        messageBus.publish(topic, message);
+    }
+
+    /**
+     * 使用连接参数中的票据确定连接的身份
+     *
+     * @param session
+     * @return 票据无效，或未携带票据且不允许匿名连接时返回null
+     */
+    private WebSocketPrincipal authenticate(Session session) {
+        List<String> values = session.getRequestParameterMap().get(TICKET);
+        if (values == null || values.isEmpty()) {
+            return authorizer.allowAnonymous() ? WebSocketPrincipal.ANONYMOUS : null;
+        }
+        return ticketService.redeem(values.get(0));
+    }
+
+    /**
+     * 会话在WebSocketBroadcaster中的key
+     * 用户的sid加上用户id，用户无法使用与管理端或其他用户相同的sid替换对方的连接
+     */
+    private String key(Session session, String sid) {
+        Object principal = session.getUserProperties().get(PRINCIPAL_ATTRIBUTE);
+        if (principal instanceof WebSocketPrincipal
+                && ((WebSocketPrincipal) principal).getRole() == WebSocketPrincipal.Role.USER) {
+            return "user:" + ((WebSocketPrincipal) principal).getId() + ":" + sid;
+        }
+        return sid;
+    }
+
+    private void close(Session session, CloseReason.CloseCode closeCode, String reason) {
+        try {
+            session.close(new CloseReason(closeCode, reason));
+        } catch (IOException e) {
+            log.debug("关闭WebSocket会话失败", e);
+        }
+    }
+
+    private List<String> parseTopics(List<String> values, WebSocketPrincipal principal) {
+        List<String> topics = new ArrayList<>();
+        if (values != null) {
+            for (String value : values) {
+                for (String topic : value.split(",")) {
+                    if (!topic.trim().isEmpty()) {
+                        topics.add(topic.trim());
+                    }
+                }
             }
         }
+        //管理端未指定主题时订阅管理端主题
+        if (topics.isEmpty() && principal.getRole() != WebSocketPrincipal.Role.USER) {
+            topics.add(WebSocketTopics.ADMIN);
+        }
+        return topics;
     }
 
-}
\ No newline at end of file
+}
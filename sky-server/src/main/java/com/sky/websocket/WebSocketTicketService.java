@@ -0,0 +1,62 @@
+package com.sky.websocket;
+
+import com.sky.properties.WebSocketProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * WebSocket连接票据
+ * 浏览器建立WebSocket连接时无法设置请求头，客户端先用jwt令牌通过HTTP接口换取票据，再通过ticket参数建立连接。
+ * 票据保存在Redis中，有效期很短且只能使用一次，即使出现在访问日志中也无法再次使用；jwt令牌不出现在连接地址中。
+ */
+@Component
+@Slf4j
+public class WebSocketTicketService {
+
+    public static final String TICKET_KEY_PREFIX = "WS_TICKET:";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private WebSocketProperties webSocketProperties;
+
+    /**
+     * 签发票据
+     *
+     * @param role
+     * @param id 员工id或用户id
+     * @return
+     */
+    public String issue(WebSocketPrincipal.Role role, Long id) {
+        String ticket = UUID.randomUUID().toString().replace("-", "");
+        stringRedisTemplate.opsForValue().set(TICKET_KEY_PREFIX + ticket, role.name() + ":" + id,
+                webSocketProperties.getTicketTtl());
+        return ticket;
+    }
+
+    /**
+     * 使用票据，票据使用后立即失效
+     *
+     * @param ticket
+     * @return 票据无效、已过期或已被使用时返回null
+     */
+    public WebSocketPrincipal redeem(String ticket) {
+        String key = TICKET_KEY_PREFIX + ticket;
+        try {
+            String value = stringRedisTemplate.opsForValue().get(key);
+            //只有删除成功的一方可以使用票据，同一票据并发使用时只有一个连接成功
+            if (value == null || !Boolean.TRUE.equals(stringRedisTemplate.delete(key))) {
+                return null;
+            }
+            String[] parts = value.split(":");
+            return new WebSocketPrincipal(WebSocketPrincipal.Role.valueOf(parts[0]), Long.valueOf(parts[1]));
+        } catch (Exception e) {
+            log.warn("校验WebSocket票据失败：{}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.sky.websocket;
+
+/**
+ * WebSocket订阅主题
+ * 客户端连接时通过topics参数订阅，例如 /ws/{sid}?ticket=...&topics=role:admin,shop:1，未指定时管理端订阅管理端主题
+ * 每个主题都可以加上 :batch 后缀订阅合并通知
+ */
+public class WebSocketTopics {
+
+    //管理端，接收来单提醒和催单
+    public static final String ADMIN = "role:admin";
+    //后厨屏幕，接收订单状态变更
+    public static final String KITCHEN = "role:kitchen";
+
+    public static final String SHOP_PREFIX = "shop:";
+    public static final String ORDER_PREFIX = "order:";
+
+    //合并通知的主题后缀，订阅后窗口内的多条通知合并成一帧 {"type":"batch","items":[...]}
+    public static final String BATCH_SUFFIX = ":batch";
+
+    public static String shop(Long shopId) {
+        return SHOP_PREFIX + shopId;
+    }
+
+    public static String order(Long orderId) {
+        return ORDER_PREFIX + orderId;
+    }
+
+    /**
+     * 主题对应的合并通知主题，例如 role:admin:batch
+     *
+     * @param topic
+     * @return
+     */
+    public static String batch(String topic) {
+        return topic + BATCH_SUFFIX;
+    }
+
+    /**
+     * 去掉合并通知的后缀
+     *
+     * @param topic
+     * @return
+     */
+    public static String unbatch(String topic) {
+        return topic.endsWith(BATCH_SUFFIX) ? topic.substring(0, topic.length() - BATCH_SUFFIX.length()) : topic;
+    }
+
+    /**
+     * 解析主题中的id，如 order:1 中的1
+     *
+     * @param topic
+     * @param prefix
+     * @return 不是该前缀的主题或id格式错误时返回null
+     */
+    public static Long parseId(String topic, String prefix) {
+        if (!topic.startsWith(prefix)) {
+            return null;
+        }
+        try {
+            return Long.valueOf(topic.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
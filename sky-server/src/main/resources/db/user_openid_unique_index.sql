@@ -0,0 +1,11 @@
+-- user表openid列的唯一索引，UserMapper.upsertByOpenid依赖该索引
+-- 未创建该索引时，微信登录使用先查询再插入的方式注册新用户
+
+-- 1. 检查是否存在重复的openid，存在时需要先合并重复的用户（包括其订单、地址簿和购物车）
+select openid, count(*) as count, min(id) as keep_id
+from user
+group by openid
+having count(*) > 1;
+
+-- 2. 创建唯一索引
+alter table user add unique key uk_openid (openid);
@@ -0,0 +1,18 @@
+-- GCRA令牌桶限流
+-- KEYS[1] 限流key，ARGV[1] 平均每次请求的间隔（毫秒），ARGV[2] 允许连续请求的次数
+-- 返回1表示放行，0表示超出限额
+redis.replicate_commands()
+local interval = tonumber(ARGV[1])
+local burst = tonumber(ARGV[2])
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local tat = tonumber(redis.call('GET', KEYS[1])) or now
+if tat < now then
+    tat = now
+end
+local new_tat = tat + interval
+if new_tat - now > interval * burst then
+    return 0
+end
+redis.call('SET', KEYS[1], new_tat, 'PX', new_tat - now)
+return 1